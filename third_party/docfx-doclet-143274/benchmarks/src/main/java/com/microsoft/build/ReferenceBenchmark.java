@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.build;
+
+import com.microsoft.lookup.ClassLookup;
+import com.microsoft.model.ExceptionItem;
+import com.microsoft.model.MetadataFile;
+import com.microsoft.model.MetadataFileItem;
+import com.microsoft.model.MethodParameter;
+import com.microsoft.model.Return;
+import com.microsoft.util.ElementUtil;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jdk.javadoc.doclet.DocletEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Covers the references of a class file with 2,000 methods, as added by ClassBuilder and then
+ * post-processed. Each invocation builds the references of the whole file.
+ *
+ * <p>ReferenceBuilder shares reference items between the files of a run. The cold benchmark creates
+ * a new builder for each file, as for the first file of a run, while the warm one keeps the builder
+ * of the previous invocations, as for a file whose types were all seen before.
+ *
+ * <p>Run from this directory with: <code>java -jar target/benchmarks.jar ReferenceBenchmark -prof
+ * gc</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceBenchmark {
+
+  private static final int METHOD_COUNT = 2000;
+  private static final String CLASS_UID = "com.example.LargeClient";
+  private static final String[] TYPES = {
+    "java.lang.String",
+    "int",
+    "boolean",
+    "byte[]",
+    "com.example.LargeClient",
+    "com.google.protobuf.ByteString",
+    "java.util.List<java.lang.String>",
+    "java.util.Map<java.lang.String,com.example.Value>",
+    "com.google.api.gax.rpc.ServerStreamingCallable<com.example.Request,com.example.Response>",
+    "com.google.api.core.ApiFuture<com.google.longrunning.Operation>",
+    "java.util.List<? extends com.example.Value>"
+  };
+
+  private DocletEnvironment environment;
+  private ElementUtil elementUtil;
+  private ReferenceBuilder warmReferenceBuilder;
+  private List<MetadataFileItem> methodItems;
+
+  @Setup
+  public void setup() {
+    environment =
+        (DocletEnvironment)
+            Proxy.newProxyInstance(
+                DocletEnvironment.class.getClassLoader(),
+                new Class<?>[] {DocletEnvironment.class},
+                (proxy, method, args) ->
+                    "getIncludedElements".equals(method.getName()) ? Collections.emptySet() : null);
+    elementUtil = new ElementUtil(new String[0], new String[0]);
+    warmReferenceBuilder = newReferenceBuilder();
+
+    methodItems = new ArrayList<>();
+    for (int m = 0; m < METHOD_COUNT; m++) {
+      // Methods come in overloads of four, as in generated clients
+      String name = "method" + m / 4;
+      String firstType = TYPES[m % TYPES.length];
+      String secondType = TYPES[(m / 4 + 3) % TYPES.length];
+      String uid = CLASS_UID + "." + name + "(" + firstType + "," + secondType + ")";
+      MetadataFileItem item = new MetadataFileItem(new String[] {"java"}, uid) {};
+      item.setName(name + "(" + firstType + "," + secondType + ")");
+      item.setNameWithType("LargeClient." + item.getName());
+      item.setFullName(uid);
+      item.setPackageName("com.example");
+      item.setOverload(CLASS_UID + "." + name + "*");
+      item.setParameters(
+          List.of(
+              new MethodParameter("first", firstType, ""),
+              new MethodParameter("second", secondType, "")));
+      item.setReturn(new Return(TYPES[(m + 5) % TYPES.length]));
+      item.setExceptions(
+          List.of(
+              new ExceptionItem("java.io.IOException", ""),
+              new ExceptionItem("com.google.api.gax.rpc.ApiException", "")));
+      methodItems.add(item);
+    }
+  }
+
+  private ReferenceBuilder newReferenceBuilder() {
+    return new ReferenceBuilder(
+        environment, new ClassLookup(environment, elementUtil), elementUtil);
+  }
+
+  @Benchmark
+  public MetadataFile buildReferencesColdCaches() {
+    return buildReferences(newReferenceBuilder());
+  }
+
+  @Benchmark
+  public MetadataFile buildReferencesWarmCaches() {
+    return buildReferences(warmReferenceBuilder);
+  }
+
+  private MetadataFile buildReferences(ReferenceBuilder referenceBuilder) {
+    MetadataFile classMetadataFile = new MetadataFile("target", CLASS_UID + ".yml");
+    classMetadataFile.getItems().add(new MetadataFileItem(new String[] {"java"}, CLASS_UID));
+    for (MetadataFileItem methodItem : methodItems) {
+      classMetadataFile.getItems().add(methodItem);
+      referenceBuilder.addExceptionReferences(methodItem, classMetadataFile);
+      referenceBuilder.addParameterReferences(methodItem, classMetadataFile);
+      referenceBuilder.addReturnReferences(methodItem, classMetadataFile);
+      referenceBuilder.addOverloadReferences(methodItem, classMetadataFile);
+    }
+    referenceBuilder.expandComplexGenericsInReferences(classMetadataFile);
+    return classMetadataFile;
+  }
+}
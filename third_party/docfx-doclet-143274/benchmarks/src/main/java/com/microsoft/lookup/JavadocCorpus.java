@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.lookup;
+
+import com.sun.source.doctree.DeprecatedTree;
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePathScanner;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/** Javadoc comments and type names used as benchmark input */
+class JavadocCorpus {
+
+  private static final Pattern YML_TYPE_PATTERN = Pattern.compile("^\\s*type: \"(.+)\"$");
+
+  // Doc comment bodies, as the doclet gets them from DocTrees
+  final List<List<? extends DocTree>> bodies = new ArrayList<>();
+  // Raw text of the same bodies, as handed to cleanupHtml
+  final List<String> texts = new ArrayList<>();
+  // Fully qualified type names, as handed to makeTypeShort
+  final List<String> typeNames = new ArrayList<>();
+
+  /** Comments of the sample sources used by the doclet tests, with the types of their output */
+  static JavadocCorpus fromSamples(Path docletDir) throws IOException {
+    JavadocCorpus corpus = new JavadocCorpus();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+            compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        Stream<Path> sources =
+            Files.walk(docletDir.resolve("src/test/java/com/microsoft/samples"))) {
+      corpus.parse(
+          compiler,
+          fileManager.getJavaFileObjectsFromPaths(
+              sources
+                  .filter(path -> path.toString().endsWith(".java"))
+                  .collect(Collectors.toList())));
+    }
+    try (Stream<Path> files =
+        Files.list(docletDir.resolve("src/test/resources/expected-generated-files"))) {
+      for (Path file : files.filter(path -> path.toString().endsWith(".yml")).sorted().toList()) {
+        for (String line : Files.readAllLines(file)) {
+          Matcher matcher = YML_TYPE_PATTERN.matcher(line);
+          if (matcher.matches()) {
+            corpus.typeNames.add(matcher.group(1));
+          }
+        }
+      }
+    }
+    return corpus;
+  }
+
+  /** Large comments mixing every construct handled by replaceLinksAndCodes and cleanupHtml */
+  static JavadocCorpus synthetic(int classCount, int methodCount) {
+    JavadocCorpus corpus = new JavadocCorpus();
+    List<JavaFileObject> sources = new ArrayList<>();
+    for (int c = 0; c < classCount; c++) {
+      StringBuilder source = new StringBuilder();
+      source.append("package com.example.pkg").append(c).append(";\n\n");
+      source.append(syntheticComment(c, 0)).append("public class Type").append(c).append(" {\n");
+      for (int m = 1; m <= methodCount; m++) {
+        source.append(syntheticComment(c, m));
+        source.append("  public void method").append(m).append("(String value) {}\n");
+        corpus.typeNames.add(
+            "java.util.Map<java.lang.String,java.util.List<com.example.pkg"
+                + c
+                + ".Type"
+                + c
+                + ".Nested"
+                + m
+                + "<? extends com.example.pkg"
+                + m
+                + ".Value>>>");
+      }
+      source.append("}\n");
+      sources.add(new SourceObject("Type" + c, source.toString()));
+    }
+    corpus.parse(ToolProvider.getSystemJavaCompiler(), sources);
+    return corpus;
+  }
+
+  private static String syntheticComment(int c, int m) {
+    StringBuilder comment = new StringBuilder("/**\n");
+    for (int p = 0; p < 8; p++) {
+      comment
+          .append(" * Paragraph ")
+          .append(p)
+          .append(" of {@link com.example.pkg")
+          .append(c)
+          .append(".Type")
+          .append(c)
+          .append("#method")
+          .append(m)
+          .append("(String) method label}, see {@linkplain java.util.List lists} and\n")
+          .append(" * {@code Map<String, List<Value>>} or {@literal a < b}. Uses `backticks`, a\n")
+          .append(" * [markdown link](https://example.com/")
+          .append(p)
+          .append(") and a [reference][com.example.Ref")
+          .append(p)
+          .append("].\n")
+          .append(" * <p>Keep <b>Bold</b> and <Generic> text as is.\n");
+    }
+    comment
+        .append(" * <pre><code>\n")
+        .append(" * Type")
+        .append(c)
+        .append(" value = new Type")
+        .append(c)
+        .append("();\n")
+        .append(" * </code></pre>\n")
+        .append(" * ======================= Section =======================\n")
+        .append(" *\n")
+        .append(" * @see com.example.Other#method(int)\n")
+        .append(" * @deprecated use {@link com.example.Other} instead\n")
+        .append(" */\n");
+    return comment.toString();
+  }
+
+  private void parse(JavaCompiler compiler, Iterable<? extends JavaFileObject> sources) {
+    JavacTask task =
+        (JavacTask)
+            compiler.getTask(null, null, diagnostic -> {}, List.of("-proc:none"), null, sources);
+    DocTrees docTrees = DocTrees.instance(task);
+    try {
+      for (CompilationUnitTree unit : task.parse()) {
+        new TreePathScanner<Void, Void>() {
+          @Override
+          public Void visitClass(ClassTree node, Void unused) {
+            addComment(docTrees.getDocCommentTree(getCurrentPath()));
+            return super.visitClass(node, unused);
+          }
+
+          @Override
+          public Void visitMethod(MethodTree node, Void unused) {
+            addComment(docTrees.getDocCommentTree(getCurrentPath()));
+            return null;
+          }
+
+          @Override
+          public Void visitVariable(VariableTree node, Void unused) {
+            addComment(docTrees.getDocCommentTree(getCurrentPath()));
+            return null;
+          }
+        }.scan(unit, null);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Could not parse benchmark sources", e);
+    }
+  }
+
+  private void addComment(DocCommentTree comment) {
+    if (comment == null) {
+      return;
+    }
+    addBody(comment.getFullBody());
+    for (DocTree blockTag : comment.getBlockTags()) {
+      if (blockTag.getKind() == DocTree.Kind.DEPRECATED) {
+        addBody(((DeprecatedTree) blockTag).getBody());
+      }
+    }
+  }
+
+  private void addBody(List<? extends DocTree> body) {
+    bodies.add(body);
+    texts.add(body.stream().map(String::valueOf).collect(Collectors.joining()));
+  }
+
+  private static class SourceObject extends SimpleJavaFileObject {
+    private final String content;
+
+    SourceObject(String className, String content) {
+      super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.lookup;
+
+import com.microsoft.util.ElementUtil;
+import com.microsoft.util.YamlUtil;
+import com.sun.source.doctree.DocTree;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Covers the text transformations applied to every doc comment. Each invocation processes the whole
+ * corpus.
+ *
+ * <p>Run from this directory with: <code>java -jar target/benchmarks.jar -prof gc</code>, the
+ * doclet directory is read from the <code>doclet.dir</code> system property.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextTransformBenchmark {
+
+  @Param({"samples", "synthetic"})
+  public String corpus;
+
+  private ClassLookup classLookup;
+  private List<List<? extends DocTree>> bodies;
+  private List<String> texts;
+  private List<String> typeNames;
+
+  @Setup
+  public void setup() throws IOException {
+    JavadocCorpus javadocCorpus =
+        "samples".equals(corpus)
+            ? JavadocCorpus.fromSamples(Path.of(System.getProperty("doclet.dir", "..")))
+            : JavadocCorpus.synthetic(50, 40);
+    classLookup = new ClassLookup(null, new ElementUtil(new String[0], new String[0]));
+    bodies = javadocCorpus.bodies;
+    texts = javadocCorpus.texts;
+    typeNames = javadocCorpus.typeNames;
+  }
+
+  @Benchmark
+  public void replaceLinksAndCodes(Blackhole blackhole) {
+    for (List<? extends DocTree> body : bodies) {
+      blackhole.consume(classLookup.replaceLinksAndCodes(body));
+    }
+  }
+
+  @Benchmark
+  public void cleanupHtml(Blackhole blackhole) {
+    for (String text : texts) {
+      blackhole.consume(YamlUtil.cleanupHtml(text));
+    }
+  }
+
+  @Benchmark
+  public void makeTypeShort(Blackhole blackhole) {
+    for (String typeName : typeNames) {
+      blackhole.consume(classLookup.makeTypeShort(typeName));
+    }
+  }
+}
@@ -13,6 +13,8 @@ import java.util.Optional;
 
 public class RepoMetadata {
 
+  private static final Gson GSON = new Gson();
+
   @SerializedName("api_shortname")
   private String apiShortName;
 
@@ -167,10 +169,9 @@ public class RepoMetadata {
   }
 
   public RepoMetadata parseRepoMetadata(String fileName) {
-    Gson gson = new Gson();
     Path path = Paths.get(fileName);
     try (FileReader reader = new FileReader(path.toFile())) {
-      return gson.fromJson(reader, RepoMetadata.class);
+      return GSON.fromJson(reader, RepoMetadata.class);
     } catch (IOException e) {
       throw new RuntimeException(
           ".repo-metadata.json is not found @ " + path.toAbsolutePath().normalize(), e);
@@ -27,37 +27,45 @@ import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.lang.model.element.Element;
-import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.mutable.MutableInt;
 
 final class BuilderUtil {
+  private static final String XREF_LINK_START = "<xref uid=\"";
   private static final Pattern XREF_LINK_PATTERN =
-      Pattern.compile("<xref uid=\".*?\" .*?>.*?</xref>");
-  private static final Pattern XREF_LINK_CONTENT_PATTERN =
-      Pattern.compile("(?<=<xref uid=\").*?(?=\" .*?>.*?</xref>)");
+      Pattern.compile("<xref uid=\"(.*?)\" .*?>.*?</xref>");
   private static final Pattern XREF_LINK_RESOLVE_PATTERN =
       Pattern.compile("(?<class>\\w+)\\#(?<member>\\w+)(\\((?<param>.*)\\))?");
   public static final String[] LANGS = {"java"};
 
   static String populateUidValues(String text, LookupContext lookupContext) {
-    if (StringUtils.isBlank(text)) {
+    return populateUidValues(text, lookupContext, new MutableInt());
+  }
+
+  /** Also adds the number of links found in the text to xrefCount */
+  private static String populateUidValues(
+      String text, LookupContext lookupContext, MutableInt xrefCount) {
+    if (StringUtils.isBlank(text) || !text.contains(XREF_LINK_START)) {
       return text;
     }
 
+    // Single scan, the text between links and the resolved uids are appended to the result
     Matcher linkMatcher = XREF_LINK_PATTERN.matcher(text);
+    StringBuilder result = null;
+    int copiedUpTo = 0;
     while (linkMatcher.find()) {
-      String link = linkMatcher.group();
-      Matcher linkContentMatcher = XREF_LINK_CONTENT_PATTERN.matcher(link);
-      if (!linkContentMatcher.find()) {
-        continue;
+      if (result == null) {
+        result = new StringBuilder(text.length() + 64);
       }
-
-      String linkContent = linkContentMatcher.group();
-      String uid = resolveUidFromLinkContent(linkContent, lookupContext);
-      String updatedLink = linkContentMatcher.replaceAll(uid);
-      text = StringUtils.replace(text, link, updatedLink);
+      xrefCount.increment();
+      String uid = resolveUidFromLinkContent(linkMatcher.group(1), lookupContext);
+      result.append(text, copiedUpTo, linkMatcher.start(1)).append(uid);
+      copiedUpTo = linkMatcher.end(1);
     }
-    return text;
+    if (result == null) {
+      return text;
+    }
+    return result.append(text, copiedUpTo, text.length()).toString();
   }
 
   /**
@@ -87,17 +95,42 @@ final class BuilderUtil {
   }
 
   static List<String> splitUidWithGenericsIntoClassNames(String uid) {
-    uid = RegExUtils.removeAll(uid, "[>]+$");
-    return Arrays.asList(StringUtils.split(uid, "<"));
+    int end = uid.length();
+    while (end > 0 && uid.charAt(end - 1) == '>') {
+      end--;
+    }
+    return Arrays.asList(StringUtils.split(uid.substring(0, end), '<'));
   }
 
+  /**
+   * Splits the uid into type names and the <code>&lt;</code>, <code>&gt;</code>, <code>,</code> and
+   * <code>[]</code> tokens between them, in a single pass
+   */
   static List<String> replaceUidAndSplit(String uid) {
-    String retValue = RegExUtils.replaceAll(uid, "\\<", "//<//");
-    retValue = RegExUtils.replaceAll(retValue, "\\>", "//>//");
-    retValue = RegExUtils.replaceAll(retValue, ",", "//,//");
-    retValue = RegExUtils.replaceAll(retValue, "\\[\\]", "//[]//");
+    List<String> parts = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i < uid.length(); i++) {
+      char c = uid.charAt(i);
+      if (c == '<' || c == '>' || c == ',' || c == '/') {
+        addUidPart(parts, uid, start, i);
+        if (c != '/') {
+          parts.add(String.valueOf(c));
+        }
+        start = i + 1;
+      } else if (c == '[' && i + 1 < uid.length() && uid.charAt(i + 1) == ']') {
+        addUidPart(parts, uid, start, i);
+        parts.add("[]");
+        start = ++i + 1;
+      }
+    }
+    addUidPart(parts, uid, start, uid.length());
+    return parts;
+  }
 
-    return Arrays.asList(StringUtils.split(retValue, "//"));
+  private static void addUidPart(List<String> parts, String uid, int start, int end) {
+    if (start < end) {
+      parts.add(uid.substring(start, end));
+    }
   }
 
   static List<SpecViewModel> getJavaSpec(List<String> references) {
@@ -122,36 +155,52 @@ final class BuilderUtil {
       List<MetadataFile> packageMetadataFiles, List<MetadataFile> classMetadataFiles) {
     Lookup lookup = new Lookup(packageMetadataFiles, classMetadataFiles);
 
-    classMetadataFiles.forEach(
-        classMetadataFile -> {
-          LookupContext lookupContext = lookup.buildContext(classMetadataFile);
-
-          for (MetadataFileItem item : classMetadataFile.getItems()) {
-            item.setSummary(
-                YamlUtil.cleanupHtml(populateUidValues(item.getSummary(), lookupContext)));
-
-            Optional.ofNullable(item.getSyntax())
-                .ifPresent(
-                    syntax -> {
-                      Optional.ofNullable(syntax.getParameters())
-                          .ifPresent(
-                              methodParams ->
-                                  methodParams.forEach(
-                                      param -> {
-                                        param.setDescription(
-                                            populateUidValues(
-                                                param.getDescription(), lookupContext));
-                                      }));
-                      Optional.ofNullable(syntax.getReturnValue())
-                          .ifPresent(
-                              returnValue ->
-                                  returnValue.setReturnDescription(
+    classMetadataFiles.forEach(classMetadataFile -> populateUidValues(classMetadataFile, lookup));
+  }
+
+  /**
+   * Only reads from the shared lookup, so separate files can be populated from several threads at
+   * once
+   *
+   * @return number of links found in the file
+   */
+  static int populateUidValues(MetadataFile classMetadataFile, Lookup lookup) {
+    return populateUidValues(classMetadataFile, lookup.buildContext(classMetadataFile));
+  }
+
+  /**
+   * @return number of links found in the file
+   */
+  static int populateUidValues(MetadataFile classMetadataFile, LookupContext lookupContext) {
+    MutableInt xrefCount = new MutableInt();
+
+    for (MetadataFileItem item : classMetadataFile.getItems()) {
+      item.setSummary(
+          YamlUtil.cleanupHtml(populateUidValues(item.getSummary(), lookupContext, xrefCount)));
+
+      Optional.ofNullable(item.getSyntax())
+          .ifPresent(
+              syntax -> {
+                Optional.ofNullable(syntax.getParameters())
+                    .ifPresent(
+                        methodParams ->
+                            methodParams.forEach(
+                                param -> {
+                                  param.setDescription(
                                       populateUidValues(
-                                          syntax.getReturnValue().getReturnDescription(),
-                                          lookupContext)));
-                    });
-          }
-        });
+                                          param.getDescription(), lookupContext, xrefCount));
+                                }));
+                Optional.ofNullable(syntax.getReturnValue())
+                    .ifPresent(
+                        returnValue ->
+                            returnValue.setReturnDescription(
+                                populateUidValues(
+                                    syntax.getReturnValue().getReturnDescription(),
+                                    lookupContext,
+                                    xrefCount)));
+              });
+    }
+    return xrefCount.intValue();
   }
 
   /**
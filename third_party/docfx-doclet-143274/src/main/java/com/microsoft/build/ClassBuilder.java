@@ -29,10 +29,14 @@ import com.microsoft.model.MetadataFileItem;
 import com.microsoft.model.StubPackageToc;
 import com.microsoft.model.TocItem;
 import com.microsoft.model.TocTypeMap;
+import com.microsoft.util.BuildMetrics;
 import com.microsoft.util.ElementUtil;
 import com.microsoft.util.Utils;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
@@ -49,6 +53,8 @@ class ClassBuilder {
   private final String outputPath;
   private final PackageLookup packageLookup;
   private final ReferenceBuilder referenceBuilder;
+  private final IncrementalCache incrementalCache;
+  private final BuildMetrics metrics;
 
   ClassBuilder(
       ElementUtil elementUtil,
@@ -56,13 +62,17 @@ class ClassBuilder {
       ClassItemsLookup classItemsLookup,
       String outputPath,
       PackageLookup packageLookup,
-      ReferenceBuilder referenceBuilder) {
+      ReferenceBuilder referenceBuilder,
+      IncrementalCache incrementalCache,
+      BuildMetrics metrics) {
     this.elementUtil = elementUtil;
     this.classLookup = classLookup;
     this.classItemsLookup = classItemsLookup;
     this.outputPath = outputPath;
     this.packageLookup = packageLookup;
     this.referenceBuilder = referenceBuilder;
+    this.incrementalCache = incrementalCache;
+    this.metrics = metrics;
   }
 
   List<TocItem> buildFilesForPackage(
@@ -125,9 +135,12 @@ class ClassBuilder {
 
       // Client classes have custom overview
       if (isClient(classElement)) {
-        classMetadataFiles.add(buildClientClassYmlFile(classElement, repoMetadata));
+        classMetadataFiles.add(
+            reuseOrBuild(
+                classElement, uid, () -> buildClientClassYmlFile(classElement, repoMetadata)));
       } else {
-        classMetadataFiles.add(buildClassYmlFile(classElement));
+        classMetadataFiles.add(
+            reuseOrBuild(classElement, uid, () -> buildClassYmlFile(classElement)));
       }
       buildFilesForApiVersionPackage(
           classElement, apiVersionPackageToc, classMetadataFiles, repoMetadata);
@@ -152,7 +165,8 @@ class ClassBuilder {
         packageToc.addUncategorized(tocItem);
       }
 
-      classMetadataFiles.add(buildClassYmlFile(classElement));
+      classMetadataFiles.add(
+          reuseOrBuild(classElement, uid, () -> buildClassYmlFile(classElement)));
       buildFilesForStubPackage(classElement, packageToc, classMetadataFiles);
     }
   }
@@ -196,11 +210,30 @@ class ClassBuilder {
         tocTypeMap.get(ElementKind.CLASS.name()).add(new TocItem(uid, name, status));
       }
 
-      classMetadataFiles.add(buildClassYmlFile(classElement));
+      classMetadataFiles.add(
+          reuseOrBuild(classElement, uid, () -> buildClassYmlFile(classElement)));
       buildFilesForStandardPackage(classElement, tocTypeMap, classMetadataFiles);
     }
   }
 
+  /** Skips building the class file when the one written by the previous run is up to date */
+  private MetadataFile reuseOrBuild(
+      TypeElement classElement, String uid, Supplier<MetadataFile> builder) {
+    String fileName = classLookup.extractHref(classElement);
+    return incrementalCache.reuseOrBuild(
+        classElement,
+        uid,
+        fileName,
+        () -> {
+          long start = System.nanoTime();
+          MetadataFile classMetadataFile = builder.get();
+          metrics.recordClass(uid, System.nanoTime() - start);
+          // Member items are only looked up while building the file of their class
+          elementUtil.getEnclosedElements(classElement).forEach(classItemsLookup::evict);
+          return classMetadataFile;
+        });
+  }
+
   private MetadataFile buildClientClassYmlFile(
       TypeElement classElement, RepoMetadata repoMetadata) {
     String fileName = classLookup.extractHref(classElement);
@@ -304,7 +337,8 @@ class ClassBuilder {
   void addConstructorsInfo(TypeElement classElement, MetadataFile classMetadataFile) {
     for (ExecutableElement constructorElement :
         ElementFilter.constructorsIn(elementUtil.getEnclosedElements(classElement))) {
-      MetadataFileItem constructorItem = buildMetadataFileItem(constructorElement);
+      MetadataFileItem constructorItem =
+          buildMetadataFileItem(constructorElement, classMetadataFile);
       constructorItem.setOverload(classItemsLookup.extractOverload(constructorElement));
       constructorItem.setContent(classItemsLookup.extractConstructorContent(constructorElement));
       constructorItem.setParameters(classItemsLookup.extractParameters(constructorElement));
@@ -320,7 +354,7 @@ class ClassBuilder {
         .filter(methodElement -> !Utils.isPrivateOrPackagePrivate(methodElement))
         .forEach(
             methodElement -> {
-              MetadataFileItem methodItem = buildMetadataFileItem(methodElement);
+              MetadataFileItem methodItem = buildMetadataFileItem(methodElement, classMetadataFile);
               methodItem.setOverload(classItemsLookup.extractOverload(methodElement));
               methodItem.setContent(classItemsLookup.extractMethodContent(methodElement));
               methodItem.setExceptions(classItemsLookup.extractExceptions(methodElement));
@@ -341,7 +375,7 @@ class ClassBuilder {
         .filter(fieldElement -> !Utils.isPrivateOrPackagePrivate(fieldElement))
         .forEach(
             fieldElement -> {
-              MetadataFileItem fieldItem = buildMetadataFileItem(fieldElement);
+              MetadataFileItem fieldItem = buildMetadataFileItem(fieldElement, classMetadataFile);
               fieldItem.setContent(classItemsLookup.extractFieldContent(fieldElement));
               fieldItem.setReturn(classItemsLookup.extractReturn(fieldElement));
               classMetadataFile.getItems().add(fieldItem);
@@ -353,22 +387,27 @@ class ClassBuilder {
     referenceBuilder.expandComplexGenericsInReferences(classMetadataFile);
   }
 
-  private MetadataFileItem buildMetadataFileItem(Element element) {
-    return new MetadataFileItem(LANGS, classItemsLookup.extractUid(element)) {
-      {
-        String name = classItemsLookup.extractName(element);
-        setId(classItemsLookup.extractId(element));
-        setParent(classItemsLookup.extractParent(element));
-        setName(name);
-        setNameWithType(classItemsLookup.extractNameWithType(element));
-        setFullName(classItemsLookup.extractFullName(element));
-        setType(classItemsLookup.extractType(element));
-        setJavaType(classItemsLookup.extractJavaType(element));
-        setPackageName(classItemsLookup.extractPackageName(element));
-        setSummary(classItemsLookup.extractSummary(element));
-        setStatus(classItemsLookup.extractStatus(element));
-      }
-    };
+  private MetadataFileItem buildMetadataFileItem(Element element, MetadataFile classMetadataFile) {
+    MetadataFileItem item =
+        new MetadataFileItem(LANGS, classItemsLookup.extractUid(element)) {
+          {
+            String name = classItemsLookup.extractName(element);
+            setId(classItemsLookup.extractId(element));
+            setParent(classItemsLookup.extractParent(element));
+            setName(name);
+            setNameWithType(classItemsLookup.extractNameWithType(element));
+            setFullName(classItemsLookup.extractFullName(element));
+            setType(classItemsLookup.extractType(element));
+            setJavaType(classItemsLookup.extractJavaType(element));
+            setPackageName(classItemsLookup.extractPackageName(element));
+            setSummary(classItemsLookup.extractSummary(element));
+            setStatus(classItemsLookup.extractStatus(element));
+          }
+        };
+    for (Consumer<MetadataFileItem> deferredText : classItemsLookup.extractDeferredTexts(element)) {
+      classMetadataFile.addDeferredText(() -> deferredText.accept(item));
+    }
+    return item;
   }
 
   private void addChildren(TypeElement classElement, List<String> children) {
@@ -376,6 +415,7 @@ class ClassBuilder {
     collect(classElement, children, ElementFilter::methodsIn, classItemsLookup::extractUid);
     collect(classElement, children, ElementFilter::fieldsIn, classItemsLookup::extractUid);
     collect(classElement, children, ElementFilter::typesIn, String::valueOf);
+    Collections.sort(children);
   }
 
   private void collect(
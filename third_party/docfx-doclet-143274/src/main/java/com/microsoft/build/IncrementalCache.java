@@ -0,0 +1,471 @@
+/*
+ * Copyright 2024 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.microsoft.build;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.microsoft.build.Lookup.Entries;
+import com.microsoft.model.MetadataFile;
+import com.microsoft.model.MetadataFileItem;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Keeps a manifest of the class files written by the previous run, so that classes whose signature
+ * and doc comments did not change are neither built nor written again.
+ *
+ * <p>A class file also depends on the rest of the API. Inherited members come from the supertypes,
+ * so they are part of the hash of the class. References to types are shortened when the type is
+ * documented too, and links are resolved against every other file. For each class, the manifest
+ * records which of its referenced types were documented and every lookup key its links were
+ * resolved with, along with the result. The class is only reused when both still hold, otherwise it
+ * is built again. A change of the repo metadata, of the doclet options or of the doclet code itself
+ * invalidates every entry.
+ */
+class IncrementalCache {
+
+  static final String MANIFEST_FILE_NAME = "manifest.json";
+
+  // Bump when the layout of the manifest changes. Changes of the generated files need no bump, as
+  // the doclet code is part of the settings hash
+  private static final int FORMAT_VERSION = 2;
+
+  private static final Gson GSON =
+      new GsonBuilder().serializeNulls().disableHtmlEscaping().setPrettyPrinting().create();
+
+  private final Path manifestPath;
+  private final Elements elements;
+  private final Types types;
+  private final String outputPath;
+  private final Predicate<String> includedType;
+  private final Manifest previous;
+  private final Manifest current = new Manifest();
+
+  // Hash of the doclet classes, computed once per JVM
+  private static volatile String docletHash;
+
+  private final Map<TypeElement, String> typeHashes = new HashMap<>();
+  private final Map<MetadataFile, String> builtFiles = new IdentityHashMap<>();
+  private final Map<MetadataFile, ReusedFile> reusedFiles = new IdentityHashMap<>();
+  // Entries of built files whose links are not resolved yet, by file name with path
+  private final Map<String, ClassEntry> unresolvedFiles = new ConcurrentHashMap<>();
+  private int regeneratedCount;
+
+  private IncrementalCache(
+      String cacheDir,
+      DocletEnvironment environment,
+      String outputPath,
+      String repoMetadataFilePath,
+      List<?> docletOptions,
+      Predicate<String> includedType) {
+    this.manifestPath = cacheDir == null ? null : Paths.get(cacheDir, MANIFEST_FILE_NAME);
+    this.elements = environment == null ? null : environment.getElementUtils();
+    this.types = environment == null ? null : environment.getTypeUtils();
+    this.outputPath = outputPath;
+    this.includedType = includedType;
+    this.previous = manifestPath == null ? new Manifest() : readManifest(manifestPath);
+    if (manifestPath != null) {
+      current.settingsHash = computeSettingsHash(repoMetadataFilePath, docletOptions);
+    }
+  }
+
+  /** Cache which never reuses anything and keeps no state, used when no cache dir is set */
+  static IncrementalCache disabled() {
+    return new IncrementalCache(null, null, null, null, null, null);
+  }
+
+  /**
+   * Loads the manifest of the previous run. The doclet options are the ones which change the
+   * content of class files, includedType tells whether a type uid is documented by this run.
+   */
+  static IncrementalCache load(
+      String cacheDir,
+      DocletEnvironment environment,
+      String outputPath,
+      String repoMetadataFilePath,
+      List<?> docletOptions,
+      Predicate<String> includedType) {
+    if (cacheDir == null) {
+      return disabled();
+    }
+    return new IncrementalCache(
+        cacheDir, environment, outputPath, repoMetadataFilePath, docletOptions, includedType);
+  }
+
+  boolean isEnabled() {
+    return manifestPath != null;
+  }
+
+  /**
+   * Returns an empty placeholder for the class file when the file written by the previous run is
+   * still up to date, otherwise builds it. Placeholders only serve as lookup entries and must not
+   * be written. Their links are checked by {@link #checkLinks} once the lookup is built.
+   */
+  MetadataFile reuseOrBuild(
+      TypeElement classElement, String uid, String fileName, Supplier<MetadataFile> builder) {
+    if (!isEnabled()) {
+      return builder.get();
+    }
+    String hash = computeClassHash(classElement);
+    ClassEntry entry = previous.classes.get(uid);
+    if (entry != null
+        && previous.formatVersion == FORMAT_VERSION
+        && Objects.equals(previous.settingsHash, current.settingsHash)
+        && hash.equals(entry.hash)
+        && fileName.equals(entry.fileName)
+        && entry.lookupEntries != null
+        && entry.resolvedKeys != null
+        && sameIncludedTypes(entry.referencedTypes)
+        && Files.isRegularFile(Paths.get(outputPath, fileName))) {
+      MetadataFile placeholder = new MetadataFile(outputPath, fileName);
+      reusedFiles.put(placeholder, new ReusedFile(uid, entry, builder));
+      current.classes.put(uid, entry);
+      return placeholder;
+    }
+    MetadataFile classMetadataFile = builder.get();
+    builtFiles.put(classMetadataFile, uid);
+    current.classes.put(uid, new ClassEntry(hash));
+    regeneratedCount++;
+    return classMetadataFile;
+  }
+
+  private boolean sameIncludedTypes(Map<String, Boolean> referencedTypes) {
+    if (referencedTypes == null) {
+      return false;
+    }
+    for (Map.Entry<String, Boolean> type : referencedTypes.entrySet()) {
+      if (includedType.test(type.getKey()) != type.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Provides lookup entries of reused files from the manifest, and records those of built files */
+  Entries lookupEntries(MetadataFile file) {
+    ReusedFile reused = reusedFiles.get(file);
+    if (reused != null) {
+      return reused.entry.lookupEntries;
+    }
+    Entries entries = Lookup.buildEntries(file);
+    String uid = builtFiles.remove(file);
+    if (uid != null) {
+      ClassEntry entry = current.classes.get(uid);
+      entry.fileName = file.getFileName();
+      entry.lookupEntries = entries;
+      entry.referencedTypes = new TreeMap<>();
+      for (MetadataFileItem reference : file.getReferences()) {
+        entry.referencedTypes.put(reference.getUid(), includedType.test(reference.getUid()));
+      }
+      unresolvedFiles.put(file.getFileNameWithPath(), entry);
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the placeholder of a reused file when its links still resolve as in the previous run,
+   * otherwise builds the file again. The lookup stays valid either way: a file built from the same
+   * class hash and included types gives the lookup entries recorded by the previous run.
+   */
+  MetadataFile checkLinks(MetadataFile file, Lookup lookup) {
+    ReusedFile reused = reusedFiles.get(file);
+    if (reused == null || sameResolutions(reused.entry.resolvedKeys, lookup.buildContext(file))) {
+      return file;
+    }
+    reusedFiles.remove(file);
+    MetadataFile classMetadataFile = reused.builder.get();
+    ClassEntry entry = new ClassEntry(reused.entry.hash);
+    entry.fileName = reused.entry.fileName;
+    entry.lookupEntries = reused.entry.lookupEntries;
+    entry.referencedTypes = reused.entry.referencedTypes;
+    current.classes.put(reused.uid, entry);
+    unresolvedFiles.put(classMetadataFile.getFileNameWithPath(), entry);
+    regeneratedCount++;
+    return classMetadataFile;
+  }
+
+  private static boolean sameResolutions(
+      Map<String, String> resolvedKeys, LookupContext lookupContext) {
+    for (Map.Entry<String, String> resolved : resolvedKeys.entrySet()) {
+      String key = resolved.getKey();
+      String value = lookupContext.containsKey(key) ? lookupContext.resolve(key) : null;
+      if (!Objects.equals(value, resolved.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the context to resolve the links of a built file with, which records the keys looked up
+   * for the next run. Can be called from several threads for different files.
+   */
+  LookupContext buildContext(MetadataFile file, Lookup lookup) {
+    LookupContext lookupContext = lookup.buildContext(file);
+    ClassEntry entry = unresolvedFiles.remove(file.getFileNameWithPath());
+    if (entry == null) {
+      return lookupContext;
+    }
+    entry.resolvedKeys = new TreeMap<>();
+    return lookupContext.recording(entry.resolvedKeys);
+  }
+
+  boolean isReused(MetadataFile file) {
+    return reusedFiles.containsKey(file);
+  }
+
+  int getReusedCount() {
+    return reusedFiles.size();
+  }
+
+  int getRegeneratedCount() {
+    return regeneratedCount;
+  }
+
+  /** Writes the manifest for the next run, classes which are gone are dropped from it */
+  void save() {
+    if (!isEnabled()) {
+      return;
+    }
+    current.formatVersion = FORMAT_VERSION;
+    current
+        .classes
+        .values()
+        .removeIf(entry -> entry.lookupEntries == null || entry.resolvedKeys == null);
+    // Null keys are never looked up, and cannot be written to the manifest
+    for (ClassEntry entry : current.classes.values()) {
+      entry.lookupEntries.entries.remove(null);
+      entry.lookupEntries.specForJavaEntries.remove(null);
+    }
+    try {
+      Files.createDirectories(manifestPath.getParent());
+      try (Writer writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8)) {
+        GSON.toJson(current, writer);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error during incremental cache save", e);
+    }
+  }
+
+  private static Manifest readManifest(Path manifestPath) {
+    if (!Files.isRegularFile(manifestPath)) {
+      return new Manifest();
+    }
+    try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+      Manifest manifest = GSON.fromJson(reader, Manifest.class);
+      if (manifest == null || manifest.classes == null) {
+        return new Manifest();
+      }
+      return manifest;
+    } catch (IOException | JsonParseException e) {
+      // A broken cache only means a full build
+      return new Manifest();
+    }
+  }
+
+  private static String computeSettingsHash(String repoMetadataFilePath, List<?> docletOptions) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, getDocletHash());
+    for (Object option : docletOptions) {
+      putString(hasher, option);
+    }
+    if (repoMetadataFilePath != null) {
+      try {
+        hasher.putBytes(Files.readAllBytes(Paths.get(repoMetadataFilePath)));
+      } catch (IOException e) {
+        hasher.putString(repoMetadataFilePath, StandardCharsets.UTF_8);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String getDocletHash() {
+    if (docletHash == null) {
+      docletHash = computeDocletHash();
+    }
+    return docletHash;
+  }
+
+  /** Hash of the jar or of the class directory the doclet is loaded from */
+  private static String computeDocletHash() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    try {
+      Path location =
+          Paths.get(
+              IncrementalCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      if (Files.isDirectory(location)) {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(location)) {
+          files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+          putString(hasher, location.relativize(file));
+          putString(hasher, MoreFiles.asByteSource(file).hash(Hashing.sha256()));
+        }
+      } else {
+        putString(hasher, MoreFiles.asByteSource(location).hash(Hashing.sha256()));
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      // Unknown code must never match a previous run
+      putString(hasher, UUID.randomUUID());
+    }
+    return hasher.hash().toString();
+  }
+
+  /** Hash of the class signature and doc comments, including those of all supertypes */
+  private String computeClassHash(TypeElement classElement) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putTypeHash(hasher, classElement);
+    return hasher.hash().toString();
+  }
+
+  private void putTypeHash(Hasher hasher, TypeElement type) {
+    String hash = typeHashes.get(type);
+    if (hash == null) {
+      Hasher typeHasher = Hashing.sha256().newHasher();
+      putSignature(typeHasher, type);
+      putDocComments(typeHasher, type);
+      for (TypeMirror supertype : types.directSupertypes(type.asType())) {
+        if (supertype instanceof DeclaredType) {
+          putTypeHash(typeHasher, (TypeElement) ((DeclaredType) supertype).asElement());
+        }
+      }
+      hash = typeHasher.hash().toString();
+      typeHashes.put(type, hash);
+    }
+    putString(hasher, hash);
+  }
+
+  private void putSignature(Hasher hasher, TypeElement type) {
+    putString(hasher, type.getKind());
+    putString(hasher, type.getQualifiedName());
+    putString(hasher, type.getModifiers());
+    putAnnotations(hasher, type);
+    putString(hasher, type.asType());
+    putString(hasher, type.getSuperclass());
+    putString(hasher, type.getInterfaces());
+    putTypeParameters(hasher, type.getTypeParameters());
+    for (Element member : type.getEnclosedElements()) {
+      putString(hasher, member.getKind());
+      putString(hasher, member);
+      putString(hasher, member.getModifiers());
+      putAnnotations(hasher, member);
+      putString(hasher, member.asType());
+      if (member instanceof ExecutableElement) {
+        ExecutableElement executable = (ExecutableElement) member;
+        for (VariableElement param : executable.getParameters()) {
+          putString(hasher, param.getSimpleName());
+          putAnnotations(hasher, param);
+        }
+        putString(hasher, executable.getThrownTypes());
+        putTypeParameters(hasher, executable.getTypeParameters());
+      } else if (member instanceof VariableElement) {
+        putString(hasher, ((VariableElement) member).getConstantValue());
+      }
+    }
+  }
+
+  private void putDocComments(Hasher hasher, TypeElement type) {
+    putString(hasher, elements.getDocComment(type));
+    for (Element member : type.getEnclosedElements()) {
+      putString(hasher, elements.getDocComment(member));
+    }
+  }
+
+  private static void putAnnotations(Hasher hasher, Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      putString(hasher, annotation);
+    }
+  }
+
+  private static void putTypeParameters(
+      Hasher hasher, List<? extends TypeParameterElement> typeParameters) {
+    for (TypeParameterElement typeParameter : typeParameters) {
+      putString(hasher, typeParameter.getSimpleName());
+      putString(hasher, typeParameter.getBounds());
+    }
+  }
+
+  private static void putString(Hasher hasher, Object value) {
+    hasher.putString(String.valueOf(value), StandardCharsets.UTF_8).putChar('\0');
+  }
+
+  private static class Manifest {
+    int formatVersion = FORMAT_VERSION;
+    String settingsHash;
+    Map<String, ClassEntry> classes = new TreeMap<>();
+  }
+
+  private static class ClassEntry {
+    String hash;
+    String fileName;
+    Entries lookupEntries;
+    // Whether each referenced type was documented, which decides how its reference is built
+    Map<String, Boolean> referencedTypes;
+    // Lookup keys of the links of the file, with the uid they resolved to or null
+    Map<String, String> resolvedKeys;
+
+    ClassEntry(String hash) {
+      this.hash = hash;
+    }
+  }
+
+  /** Reused file, with what is needed to build it after all when its links changed */
+  private static class ReusedFile {
+    final String uid;
+    final ClassEntry entry;
+    final Supplier<MetadataFile> builder;
+
+    ReusedFile(String uid, ClassEntry entry, Supplier<MetadataFile> builder) {
+      this.uid = uid;
+      this.entry = entry;
+      this.builder = builder;
+    }
+  }
+}
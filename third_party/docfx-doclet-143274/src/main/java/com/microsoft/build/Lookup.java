@@ -1,29 +1,58 @@
 package com.microsoft.build;
 
-import static org.apache.commons.lang3.RegExUtils.removeAll;
-import static org.apache.commons.lang3.RegExUtils.replaceAll;
-
 import com.microsoft.model.MetadataFile;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
 
 public class Lookup {
 
   private static final int INITIAL_CAPACITY = 10000;
   private final Map<String, String> globalLookup;
+  // Per file, only the entries which resolve differently than the global lookup
   private final Map<String, Map<String, String>> localLookupByFileName;
 
-  private final String UID_PACKAGE_NAME_REGEXP = "^.*?\\.(?=[A-Z].*)";
-  private final String PARAM_PACKAGE_NAME_REGEXP = "(?<=[\\( ]).*?(?=[A-Z].*)";
-  private final String METHOD_PARAMS_REGEXP = "\\s[^\\s]+?(?=[,)])";
+  private static final Pattern UID_PACKAGE_NAME_PATTERN = Pattern.compile("^.*?\\.(?=[A-Z].*)");
+  private static final Pattern PARAM_PACKAGE_NAME_PATTERN =
+      Pattern.compile("(?<=[\\( ]).*?(?=[A-Z].*)");
+  private static final Pattern METHOD_PARAMS_PATTERN = Pattern.compile("\\s[^\\s]+?(?=[,)])");
+  private static final Pattern GENERICS_PATTERN = Pattern.compile("<.*?>");
 
   public Lookup(List<MetadataFile> packageMetadataFiles, List<MetadataFile> classMetadataFiles) {
-    this.globalLookup = new HashMap<>(INITIAL_CAPACITY);
-    this.localLookupByFileName = new HashMap<>(INITIAL_CAPACITY);
-    consume(packageMetadataFiles);
-    consume(classMetadataFiles);
+    this(packageMetadataFiles, classMetadataFiles, Lookup::buildEntries);
+  }
+
+  /**
+   * @param entriesProvider provides the entries of each file, allows to use entries saved by a
+   *     previous run for files which are not built again
+   */
+  Lookup(
+      List<MetadataFile> packageMetadataFiles,
+      List<MetadataFile> classMetadataFiles,
+      Function<MetadataFile, Entries> entriesProvider) {
+    List<MetadataFile> files =
+        new ArrayList<>(packageMetadataFiles.size() + classMetadataFiles.size());
+    files.addAll(packageMetadataFiles);
+    files.addAll(classMetadataFiles);
+    this.globalLookup = new HashMap<>(Math.max(INITIAL_CAPACITY, files.size() * 32));
+    this.localLookupByFileName = new HashMap<>(Math.max(INITIAL_CAPACITY, files.size() * 2));
+
+    // When several files add the same key, the global lookup keeps the value of the last one. Going
+    // backwards, the first value seen for a key is therefore the final one.
+    for (ListIterator<MetadataFile> iterator = files.listIterator(files.size());
+        iterator.hasPrevious(); ) {
+      MetadataFile file = iterator.previous();
+      Map<String, String> overlay = consume(entriesProvider.apply(file));
+      localLookupByFileName.putIfAbsent(file.getFileNameWithPath(), overlay);
+    }
   }
 
   public LookupContext buildContext(MetadataFile metadataFile) {
@@ -31,6 +60,33 @@ public class Lookup {
     return new LookupContext(globalLookup, localLookup);
   }
 
+  /**
+   * Adds the entries of a file to the global lookup and returns what its local lookup has to keep
+   * on top of it: the first entry, which {@link LookupContext#getOwnerUid} relies on, the entries
+   * overridden by later files, and the specForJava entries.
+   */
+  private Map<String, String> consume(Entries entries) {
+    Map<String, String> overlay = new LinkedHashMap<>();
+    boolean first = true;
+    for (Map.Entry<String, String> entry : entries.entries.entrySet()) {
+      String key = entry.getKey();
+      String value = entry.getValue();
+      if (!globalLookup.containsKey(key)) {
+        globalLookup.put(key, value);
+        if (first) {
+          overlay.put(key, value);
+        }
+      } else if (first || !Objects.equals(globalLookup.get(key), value)) {
+        overlay.put(key, value);
+      }
+      first = false;
+    }
+
+    // to avoid conflict, the items from specForJava should only add to localLookup
+    overlay.putAll(entries.specForJavaEntries);
+    return overlay.isEmpty() ? Collections.emptyMap() : overlay;
+  }
+
   /**
    * For each such item from items and references of metadata file:
    *
@@ -60,69 +116,74 @@ public class Lookup {
    * and value equals to uid: <br>
    * com.microsoft.samples.subpackage.Person.setFirstName(java.lang.String)
    */
-  private void consume(List<MetadataFile> metadataFiles) {
-    metadataFiles.forEach(
-        file -> {
-          /**
-           * It's important to use LinkedHashMap here, to put item related with owner class on first
-           * place. Logic of {@link YmlFilesBuilder#resolveUidByLookup} based on this for case
-           * when @link starts from '#'
-           */
-          Map<String, String> map = new LinkedHashMap<>();
-          Map<String, String> specForJavaMap = new LinkedHashMap<>();
-
-          file.getItems()
-              .forEach(
-                  item -> {
-                    String uid = item.getUid();
-                    String href = item.getHref();
-                    String nameWithType = item.getNameWithType();
-                    String nameWithTypeWithoutGenerics = removeAll(nameWithType, "<.*?>");
-
-                    map.put(nameWithTypeWithoutGenerics, uid); // This item should go first
-                    map.put(uid, uid);
-                    map.put(href, href);
-                    map.put(removeAll(uid, PARAM_PACKAGE_NAME_REGEXP), uid);
-                    map.put(removeAll(uid, UID_PACKAGE_NAME_REGEXP), uid);
-                    map.put(removeAll(nameWithTypeWithoutGenerics, METHOD_PARAMS_REGEXP), uid);
-                    map.put(removeAll(nameWithType, METHOD_PARAMS_REGEXP), uid);
-
-                    map.put(replaceAll(uid, ",", ", "), uid);
-                    map.put(replaceAll(removeAll(uid, PARAM_PACKAGE_NAME_REGEXP), ",", ", "), uid);
-                    map.put(replaceAll(removeAll(uid, UID_PACKAGE_NAME_REGEXP), ",", ", "), uid);
-                    map.put(
-                        replaceAll(
-                            removeAll(nameWithTypeWithoutGenerics, METHOD_PARAMS_REGEXP),
-                            ", ",
-                            ","),
-                        uid);
-                  });
-
-          file.getReferences()
-              .forEach(
-                  item -> {
-                    map.put(item.getUid(), item.getUid());
-
-                    // complex types are recorded in "specForJava" as arrayList of items, thus it
-                    // has no "NameWithType"
-                    // thus we need to get every reference item from specForJava, and add to
-                    // localLookup
-                    if (item.getNameWithType() == null || item.getNameWithType().isEmpty()) {
-                      item.getSpecForJava()
-                          .forEach(
-                              spec -> {
-                                specForJavaMap.put(spec.getName(), spec.getUid());
-                                specForJavaMap.put(spec.getFullName(), spec.getUid());
-                              });
-                    } else {
-                      map.put(item.getNameWithType(), item.getUid());
-                    }
-                  });
-
-          // to avoid conflict, the items from specForJava should only add to localLookup
-          globalLookup.putAll(map);
-          map.putAll(specForJavaMap);
-          localLookupByFileName.put(file.getFileNameWithPath(), map);
-        });
+  static Entries buildEntries(MetadataFile file) {
+    /**
+     * It's important to use LinkedHashMap here, to put item related with owner class on first
+     * place. Logic of {@link YmlFilesBuilder#resolveUidByLookup} based on this for case when @link
+     * starts from '#'
+     */
+    Entries result = new Entries();
+    Map<String, String> map = result.entries;
+    Map<String, String> specForJavaMap = result.specForJavaEntries;
+
+    file.getItems()
+        .forEach(
+            item -> {
+              String uid = item.getUid();
+              String href = item.getHref();
+              String nameWithType = item.getNameWithType();
+              String nameWithTypeWithoutGenerics = removeAll(nameWithType, GENERICS_PATTERN);
+              String uidWithoutParamPackages = removeAll(uid, PARAM_PACKAGE_NAME_PATTERN);
+              String uidWithoutPackage = removeAll(uid, UID_PACKAGE_NAME_PATTERN);
+              String nameWithoutParamNames =
+                  removeAll(nameWithTypeWithoutGenerics, METHOD_PARAMS_PATTERN);
+
+              map.put(nameWithTypeWithoutGenerics, uid); // This item should go first
+              map.put(uid, uid);
+              map.put(href, href);
+              map.put(uidWithoutParamPackages, uid);
+              map.put(uidWithoutPackage, uid);
+              map.put(nameWithoutParamNames, uid);
+              map.put(removeAll(nameWithType, METHOD_PARAMS_PATTERN), uid);
+
+              map.put(StringUtils.replace(uid, ",", ", "), uid);
+              map.put(StringUtils.replace(uidWithoutParamPackages, ",", ", "), uid);
+              map.put(StringUtils.replace(uidWithoutPackage, ",", ", "), uid);
+              map.put(StringUtils.replace(nameWithoutParamNames, ", ", ","), uid);
+            });
+
+    file.getReferences()
+        .forEach(
+            item -> {
+              map.put(item.getUid(), item.getUid());
+
+              // complex types are recorded in "specForJava" as arrayList of items, thus it
+              // has no "NameWithType"
+              // thus we need to get every reference item from specForJava, and add to
+              // localLookup
+              if (item.getNameWithType() == null || item.getNameWithType().isEmpty()) {
+                item.getSpecForJava()
+                    .forEach(
+                        spec -> {
+                          specForJavaMap.put(spec.getName(), spec.getUid());
+                          specForJavaMap.put(spec.getFullName(), spec.getUid());
+                        });
+              } else {
+                map.put(item.getNameWithType(), item.getUid());
+              }
+            });
+    return result;
+  }
+
+  private static String removeAll(String text, Pattern pattern) {
+    return text == null ? null : pattern.matcher(text).replaceAll("");
+  }
+
+  /** Lookup entries contributed by a single file */
+  static class Entries {
+    // Added to both the global lookup and the lookup of the file
+    LinkedHashMap<String, String> entries = new LinkedHashMap<>();
+    // Only added to the lookup of the file
+    LinkedHashMap<String, String> specForJavaEntries = new LinkedHashMap<>();
   }
 }
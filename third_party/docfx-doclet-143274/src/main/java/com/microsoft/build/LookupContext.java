@@ -6,17 +6,36 @@ public class LookupContext {
 
   private final Map<String, String> globalLookup;
   private final Map<String, String> localLookup;
+  // Keys looked up so far with the value they resolved to, null when not recording
+  private final Map<String, String> resolvedKeys;
 
   public LookupContext(Map<String, String> globalLookup, Map<String, String> localLookup) {
+    this(globalLookup, localLookup, null);
+  }
+
+  private LookupContext(
+      Map<String, String> globalLookup,
+      Map<String, String> localLookup,
+      Map<String, String> resolvedKeys) {
     this.globalLookup = globalLookup;
     this.localLookup = localLookup;
+    this.resolvedKeys = resolvedKeys;
+  }
+
+  /**
+   * Returns a context on the same lookups which also puts every key looked up into resolvedKeys,
+   * along with the value it resolved to, or null when it is missing
+   */
+  public LookupContext recording(Map<String, String> resolvedKeys) {
+    return new LookupContext(globalLookup, localLookup, resolvedKeys);
   }
 
   public String resolve(String key) {
-    if (localLookup.containsKey(key)) {
-      return localLookup.get(key);
+    String value = localLookup.containsKey(key) ? localLookup.get(key) : globalLookup.get(key);
+    if (resolvedKeys != null) {
+      resolvedKeys.put(key, value);
     }
-    return globalLookup.get(key);
+    return value;
   }
 
   public String getOwnerUid() {
@@ -24,6 +43,10 @@ public class LookupContext {
   }
 
   public boolean containsKey(String key) {
-    return localLookup.containsKey(key) || globalLookup.containsKey(key);
+    boolean found = localLookup.containsKey(key) || globalLookup.containsKey(key);
+    if (resolvedKeys != null && !found) {
+      resolvedKeys.put(key, null);
+    }
+    return found;
   }
 }
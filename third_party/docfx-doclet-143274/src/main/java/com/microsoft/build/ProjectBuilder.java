@@ -20,6 +20,7 @@ import static com.microsoft.build.BuilderUtil.LANGS;
 import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 class ProjectBuilder {
@@ -50,6 +51,7 @@ class ProjectBuilder {
               references.add(refItem);
             });
 
+    Collections.sort(children);
     projectItem.getChildren().addAll(children);
     projectMetadataFile.getReferences().addAll(references);
     projectMetadataFile.getItems().add(projectItem);
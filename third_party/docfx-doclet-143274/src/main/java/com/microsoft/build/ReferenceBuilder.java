@@ -22,20 +22,24 @@ import static com.microsoft.build.BuilderUtil.splitUidWithGenericsIntoClassNames
 
 import com.microsoft.build.PackageOverviewFile.PackageChildSummary;
 import com.microsoft.lookup.ClassLookup;
+import com.microsoft.model.ExceptionItem;
 import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
+import com.microsoft.model.MethodParameter;
+import com.microsoft.model.Return;
 import com.microsoft.model.SpecViewModel;
+import com.microsoft.model.TypeParameter;
 import com.microsoft.util.ElementUtil;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.ElementFilter;
@@ -43,18 +47,41 @@ import jdk.javadoc.doclet.DocletEnvironment;
 import org.apache.commons.lang3.RegExUtils;
 
 class ReferenceBuilder {
-  private final Pattern JAVA_PATTERN = Pattern.compile("^java.*");
-  private final Pattern PROTOBUF_PATTERN = Pattern.compile("^com.google.protobuf.*");
-  private final Pattern GAX_PATTERN = Pattern.compile("^com.google.api.gax.*");
-  private final Pattern APICOMMON_PATTERN = Pattern.compile("^com.google.api.core.*");
-  private final Pattern LONGRUNNING_PATTERN = Pattern.compile("^com.google.longrunning.*");
-  private final Pattern ENDING_PATTERN = Pattern.compile(".*<\\?>$");
-  private final String PRIMITIVE_URL =
+  // Reference data below is read-only and shared by all doclet runs of the JVM
+  private static final String JAVA_PREFIX = "java";
+  private static final String GOOGLE_PREFIX = "com.google.";
+  private static final String[] EXTERNAL_PREFIXES = {
+    "com.google.protobuf", "com.google.api.gax", "com.google.api.core", "com.google.longrunning"
+  };
+  private static final Set<String> JAVA_PRIMITIVES =
+      Set.of("boolean", "int", "byte", "long", "float", "double", "char", "short");
+  private static final String WILDCARD_ENDING = "<?>";
+  private static final Pattern OVERLOAD_ARGUMENTS_PATTERN = Pattern.compile("\\(.*\\)$");
+  private static final Pattern ARGUMENTS_PATTERN = Pattern.compile(".*\\(.*\\).*");
+  private static final String PRIMITIVE_URL =
       "https://docs.oracle.com/javase/tutorial/java/nutsandbolts/datatypes.html";
-  private final String JAVA_BASE_URL = "https://docs.oracle.com/javase/8/docs/api/";
+  private static final String JAVA_BASE_URL = "https://docs.oracle.com/javase/8/docs/api/";
+  // Links of JDK types and members, which are referenced by most modules
+  private static final Map<String, String> JAVA_REFERENCE_HREFS = new ConcurrentHashMap<>();
   private final DocletEnvironment environment;
   private final ClassLookup classLookup;
   private final ElementUtil elementUtil;
+  // Full names of all included types, built once on first use
+  private Set<String> includedTypeFullNames;
+  // Only used while building files on the doclet thread. Items are linked to their external
+  // documentation when created, files handed to the post-processing threads only read them.
+  private final Map<String, MetadataFileItem> refItemsByUid = new HashMap<>();
+  // Items are shared between files the same way for type parameters and parts of generic types
+  private final Map<String, MetadataFileItem> shortRefItemsByUid = new HashMap<>();
+  private final Map<String, List<MetadataFileItem>> genericPartItemsByUid = new HashMap<>();
+
+  /** Kind of a referenced type, which decides how it is linked */
+  enum ReferenceKind {
+    PRIMITIVE,
+    JAVA,
+    EXTERNAL,
+    OTHER
+  }
 
   ReferenceBuilder(
       DocletEnvironment environment, ClassLookup classLookup, ElementUtil elementUtil) {
@@ -68,6 +95,7 @@ class ReferenceBuilder {
     referenceItem.setName(classLookup.extractName(classElement));
     referenceItem.setNameWithType(classLookup.extractNameWithType(classElement));
     referenceItem.setFullName(classLookup.extractFullName(classElement));
+    updateExternalReference(referenceItem);
     return referenceItem;
   }
 
@@ -133,12 +161,15 @@ class ReferenceBuilder {
     if (uid == null || uid.equals("")) {
       return JAVA_BASE_URL;
     }
+    return JAVA_REFERENCE_HREFS.computeIfAbsent(uid, ReferenceBuilder::buildJavaReferenceHref);
+  }
+
+  private static String buildJavaReferenceHref(String uid) {
     //  example1 uid: "java.lang.Object.equals(java.lang.Object)"
     //  example2 uid: "java.lang.Object"
     String endURL = uid.replaceAll("<T>", "");
 
-    Pattern argPattern = Pattern.compile(".*\\(.*\\).*");
-    if (argPattern.matcher(endURL).find()) {
+    if (ARGUMENTS_PATTERN.matcher(endURL).find()) {
       // example1
       // argumentSplit: ["java.lang.Object.equals", "java.lang.Object)"]
       // nameSplit: ["java", "lang", "Object", "equals"]
@@ -163,120 +194,89 @@ class ReferenceBuilder {
     return JAVA_BASE_URL + endURL;
   }
 
-  void updateExternalReferences(List<MetadataFile> classMetadataFiles) {
-    classMetadataFiles.forEach(
-        file -> file.getReferences().forEach(ref -> updateExternalReference(ref)));
-  }
-
+  /** Links a reference to the documentation of JDK and external types, once when it is created */
   private void updateExternalReference(MetadataFileItem reference) {
     String uid = reference.getUid();
-    uid = updateReferenceUid(uid);
+    if (uid.endsWith(WILDCARD_ENDING)) {
+      uid = uid.replace(WILDCARD_ENDING, "");
+    }
 
-    if (isJavaPrimitive(uid)) {
+    ReferenceKind kind = classifyReference(uid);
+    if (kind == ReferenceKind.PRIMITIVE) {
       reference.setHref(PRIMITIVE_URL);
       return;
     }
-    if (isJavaLibrary(uid)) {
+    if (kind == ReferenceKind.JAVA) {
       reference.setHref(getJavaReferenceHref(uid));
-    }
-    if (isExternalReference(uid)) {
+    } else if (kind == ReferenceKind.EXTERNAL) {
       reference.setIsExternal(true);
     }
-    if (reference.getSpecForJava().size() > 0) {
-      for (SpecViewModel spec : reference.getSpecForJava()) {
-        String specUid = spec.getUid();
-        if (specUid != null) {
-          if (isJavaPrimitive(specUid)) {
+    for (SpecViewModel spec : reference.getSpecForJava()) {
+      String specUid = spec.getUid();
+      if (specUid != null) {
+        switch (classifyReference(specUid)) {
+          case PRIMITIVE:
             spec.setHref(PRIMITIVE_URL);
-          }
-          if (isJavaLibrary(specUid)) {
+            break;
+          case JAVA:
             spec.setHref(getJavaReferenceHref(specUid));
-          }
-          if (isExternalReference(specUid)) {
+            break;
+          case EXTERNAL:
             spec.setIsExternal(true);
-          }
+            break;
+          default:
+            break;
         }
       }
     }
   }
 
-  private String updateReferenceUid(String uid) {
-    if (ENDING_PATTERN.matcher(uid).find()) {
-      uid = uid.replace("<?>", "");
+  /** Tells primitives, JDK types and types of libraries documented elsewhere from the others */
+  static ReferenceKind classifyReference(String uid) {
+    if (uid.startsWith(JAVA_PREFIX)) {
+      return ReferenceKind.JAVA;
     }
-    return uid;
-  }
-
-  private boolean isExternalReference(String uid) {
-    return (PROTOBUF_PATTERN.matcher(uid).find()
-        || GAX_PATTERN.matcher(uid).find()
-        || APICOMMON_PATTERN.matcher(uid).find()
-        || GAX_PATTERN.matcher(uid).find()
-        || LONGRUNNING_PATTERN.matcher(uid).find());
-  }
-
-  private boolean isJavaPrimitive(String uid) {
-    return (uid.equals("boolean")
-        || uid.equals("int")
-        || uid.equals("byte")
-        || uid.equals("long")
-        || uid.equals("float")
-        || uid.equals("double")
-        || uid.equals("char")
-        || uid.equals("short"));
-  }
-
-  private boolean isJavaLibrary(String uid) {
-    return JAVA_PATTERN.matcher(uid).find();
+    if (uid.startsWith(GOOGLE_PREFIX)) {
+      for (String prefix : EXTERNAL_PREFIXES) {
+        if (uid.startsWith(prefix)) {
+          return ReferenceKind.EXTERNAL;
+        }
+      }
+      return ReferenceKind.OTHER;
+    }
+    return JAVA_PRIMITIVES.contains(uid) ? ReferenceKind.PRIMITIVE : ReferenceKind.OTHER;
   }
 
   void addParameterReferences(MetadataFileItem methodItem, MetadataFile classMetadataFile) {
-    classMetadataFile
-        .getReferences()
-        .addAll(
-            methodItem.getSyntax().getParameters().stream()
-                .map(parameter -> buildRefItem(parameter.getType()))
-                .filter(o -> !classMetadataFile.getItems().contains(o))
-                .collect(Collectors.toList()));
+    for (MethodParameter parameter : methodItem.getSyntax().getParameters()) {
+      classMetadataFile.addReference(buildRefItem(parameter.getType()));
+    }
   }
 
   void addReturnReferences(MetadataFileItem methodItem, MetadataFile classMetadataFile) {
-    classMetadataFile
-        .getReferences()
-        .addAll(
-            Stream.of(methodItem.getSyntax().getReturnValue())
-                .filter(Objects::nonNull)
-                .map(returnValue -> buildRefItem(returnValue.getReturnType()))
-                .filter(o -> !classMetadataFile.getItems().contains(o))
-                .collect(Collectors.toList()));
+    Return returnValue = methodItem.getSyntax().getReturnValue();
+    if (returnValue != null) {
+      classMetadataFile.addReference(buildRefItem(returnValue.getReturnType()));
+    }
   }
 
   void addExceptionReferences(MetadataFileItem methodItem, MetadataFile classMetadataFile) {
-    classMetadataFile
-        .getReferences()
-        .addAll(
-            methodItem.getExceptions().stream()
-                .map(exceptionItem -> buildRefItem(exceptionItem.getType()))
-                .filter(o -> !classMetadataFile.getItems().contains(o))
-                .collect(Collectors.toList()));
+    for (ExceptionItem exceptionItem : methodItem.getExceptions()) {
+      classMetadataFile.addReference(buildRefItem(exceptionItem.getType()));
+    }
   }
 
   void addTypeParameterReferences(MetadataFileItem methodItem, MetadataFile classMetadataFile) {
-    classMetadataFile
-        .getReferences()
-        .addAll(
-            methodItem.getSyntax().getTypeParameters().stream()
-                .map(
-                    typeParameter -> {
-                      String id = typeParameter.getId();
-                      return new MetadataFileItem(id, id, false);
-                    })
-                .collect(Collectors.toList()));
+    for (TypeParameter typeParameter : methodItem.getSyntax().getTypeParameters()) {
+      classMetadataFile.getReferences().add(buildShortRefItem(typeParameter.getId()));
+    }
   }
 
   void addSuperclassAndInterfacesReferences(
       TypeElement classElement, MetadataFile classMetadataFile) {
-    classMetadataFile.getReferences().addAll(classLookup.extractReferences(classElement));
+    Set<MetadataFileItem> references = classLookup.extractReferences(classElement);
+    references.forEach(this::updateExternalReference);
+    classMetadataFile.getReferences().addAll(references);
   }
 
   void addInnerClassesReferences(TypeElement classElement, MetadataFile classMetadataFile) {
@@ -289,17 +289,31 @@ class ReferenceBuilder {
   }
 
   void addOverloadReferences(MetadataFileItem item, MetadataFile classMetadataFile) {
-    classMetadataFile
-        .getReferences()
-        .add(
-            new MetadataFileItem(item.getOverload()) {
-              {
-                setName(RegExUtils.removeAll(item.getName(), "\\(.*\\)$"));
-                setNameWithType(RegExUtils.removeAll(item.getNameWithType(), "\\(.*\\)$"));
-                setFullName(RegExUtils.removeAll(item.getFullName(), "\\(.*\\)$"));
-                setPackageName(item.getPackageName());
-              }
-            });
+    // Overloads of a method share their reference, only the first one builds it
+    OverloadReference reference = new OverloadReference(item.getOverload());
+    if (classMetadataFile.getReferences().contains(reference)) {
+      return;
+    }
+    reference.setName(removeOverloadArguments(item.getName()));
+    reference.setNameWithType(removeOverloadArguments(item.getNameWithType()));
+    reference.setFullName(removeOverloadArguments(item.getFullName()));
+    reference.setPackageName(item.getPackageName());
+    updateExternalReference(reference);
+    classMetadataFile.getReferences().add(reference);
+  }
+
+  private static String removeOverloadArguments(String name) {
+    return RegExUtils.removeAll(name, OVERLOAD_ARGUMENTS_PATTERN);
+  }
+
+  /**
+   * Reference to all overloads of a method. It is a class of its own so that it is never equal to
+   * the reference of a type with the same uid.
+   */
+  private static class OverloadReference extends MetadataFileItem {
+    OverloadReference(String uid) {
+      super(uid);
+    }
   }
 
   /**
@@ -313,31 +327,60 @@ class ReferenceBuilder {
    * </pre>
    */
   void expandComplexGenericsInReferences(MetadataFile classMetadataFile) {
-    Set<MetadataFileItem> additionalItems = new LinkedHashSet<>();
-    Iterator<MetadataFileItem> iterator = classMetadataFile.getReferences().iterator();
-    while (iterator.hasNext()) {
-      MetadataFileItem item = iterator.next();
+    List<MetadataFileItem> additionalItems = new ArrayList<>();
+    for (MetadataFileItem item : classMetadataFile.getReferences()) {
       String uid = item.getUid();
       if (!uid.endsWith("*") && uid.contains("<")) {
-        List<String> classNames = splitUidWithGenericsIntoClassNames(uid);
         additionalItems.addAll(
-            classNames.stream()
-                .map(s -> new MetadataFileItem(s, classLookup.makeTypeShort(s), false))
-                .collect(Collectors.toSet()));
+            genericPartItemsByUid.computeIfAbsent(uid, this::buildGenericPartItems));
       }
     }
-    // Remove items which already exist in 'items' section (compared by 'uid' field)
-    additionalItems.removeAll(classMetadataFile.getItems());
+    // Items which already exist in 'items' section (compared by 'uid' field) are skipped
+    additionalItems.forEach(classMetadataFile::addReference);
+  }
 
-    classMetadataFile.getReferences().addAll(additionalItems);
+  private List<MetadataFileItem> buildGenericPartItems(String uid) {
+    // Keeps the order of the set the parts were collected to, which decides of their order in files
+    return List.copyOf(
+        splitUidWithGenericsIntoClassNames(uid).stream()
+            .map(this::buildShortRefItem)
+            .collect(Collectors.toSet()));
   }
 
+  private MetadataFileItem buildShortRefItem(String uid) {
+    return shortRefItemsByUid.computeIfAbsent(
+        uid,
+        key -> {
+          MetadataFileItem item = new MetadataFileItem(key, classLookup.makeTypeShort(key), false);
+          updateExternalReference(item);
+          return item;
+        });
+  }
+
+  /**
+   * Reference items only depend on the uid, so they are built once and shared between all files
+   * that reference the same type.
+   */
   MetadataFileItem buildRefItem(String uid) {
+    return refItemsByUid.computeIfAbsent(uid, this::buildRefItemInternal);
+  }
+
+  private MetadataFileItem buildRefItemInternal(String uid) {
+    MetadataFileItem item;
     if (!uid.endsWith("*") && (uid.contains("<") || uid.contains("[]"))) {
-      return new MetadataFileItem(uid, getJavaSpec(replaceUidAndSplit(uid)));
+      item = new MetadataFileItem(uid, getJavaSpec(replaceUidAndSplit(uid)));
+    } else if (getIncludedTypeFullNames().contains(uid)) {
+      item = new MetadataFileItem(uid, classLookup.makeTypeShort(uid), false);
     } else {
-      List<String> fullNameList = new ArrayList<>();
+      item = new MetadataFileItem(uid, getJavaSpec(replaceUidAndSplit(uid)));
+    }
+    updateExternalReference(item);
+    return item;
+  }
 
+  Set<String> getIncludedTypeFullNames() {
+    if (includedTypeFullNames == null) {
+      includedTypeFullNames = new HashSet<>();
       environment
           .getIncludedElements()
           .forEach(
@@ -346,13 +389,8 @@ class ReferenceBuilder {
                       .extractSortedElements(element)
                       .forEach(
                           typeElement ->
-                              fullNameList.add(classLookup.extractFullName(typeElement))));
-
-      if (fullNameList.contains(uid)) {
-        return new MetadataFileItem(uid, classLookup.makeTypeShort(uid), false);
-      } else {
-        return new MetadataFileItem(uid, getJavaSpec(replaceUidAndSplit(uid)));
-      }
+                              includedTypeFullNames.add(classLookup.extractFullName(typeElement))));
     }
+    return includedTypeFullNames;
   }
 }
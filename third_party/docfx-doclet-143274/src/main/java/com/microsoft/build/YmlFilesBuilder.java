@@ -16,12 +16,20 @@ import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
 import com.microsoft.model.TocFile;
 import com.microsoft.model.TocItem;
+import com.microsoft.util.BackgroundFileWriter;
+import com.microsoft.util.BuildMetrics;
+import com.microsoft.util.BuildMetrics.Phase;
 import com.microsoft.util.ElementUtil;
-import com.microsoft.util.FileUtil;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.lang.model.element.PackageElement;
 import jdk.javadoc.doclet.DocletEnvironment;
@@ -47,6 +55,18 @@ public class YmlFilesBuilder {
   private final PackageBuilder packageBuilder;
   private final ClassBuilder classBuilder;
   private final ReferenceBuilder referenceBuilder;
+  private final IncrementalCache incrementalCache;
+  private final ClassLookup classLookup;
+  private final ClassItemsLookup classItemsLookup;
+  private final BuildMetrics metrics = new BuildMetrics();
+
+  // Number of threads used for rendering doc comments, post-processing and writing files.
+  // Everything that touches the javac model (DocTrees, Elements, the lookups caching them) stays
+  // on the calling thread, as javac is not thread-safe. Doc comments of members are parsed there
+  // while class files are built, and rendered from the parsed trees on the pool.
+  private final int threads;
+  private ForkJoinPool pool;
+  private BackgroundFileWriter writer;
 
   public YmlFilesBuilder(
       DocletEnvironment environment,
@@ -58,58 +78,141 @@ public class YmlFilesBuilder {
       boolean disableLibraryOverview,
       String artifactVersion,
       String librariesBomVersion,
-      String repoMetadataFilePath) {
+      String repoMetadataFilePath,
+      int threads,
+      String incrementalCachePath) {
     this.environment = environment;
     this.outputPath = outputPath;
     this.artifactVersion = artifactVersion;
     this.librariesBomVersion = librariesBomVersion;
     this.repoMetadataFilePath = repoMetadataFilePath;
-    this.elementUtil = new ElementUtil(excludePackages, excludeClasses);
-    this.packageLookup = new PackageLookup(environment);
+    this.threads = threads;
+    // Packages and types the doclet runs on, caches of elements are sized from it
+    int includedElementsCount = environment.getIncludedElements().size();
+    this.elementUtil = new ElementUtil(excludePackages, excludeClasses, includedElementsCount);
+    this.packageLookup = new PackageLookup(environment, includedElementsCount);
     this.projectName = projectName;
     this.disableChangelog = disableChangelog;
     this.disableLibraryOverview = disableLibraryOverview;
     this.projectBuilder = new ProjectBuilder(projectName);
-    ClassLookup classLookup = new ClassLookup(environment, elementUtil);
+    this.classLookup = new ClassLookup(environment, elementUtil, includedElementsCount);
+    this.classItemsLookup = new ClassItemsLookup(environment, elementUtil, threads > 1);
     this.referenceBuilder = new ReferenceBuilder(environment, classLookup, elementUtil);
     this.packageBuilder = new PackageBuilder(packageLookup, outputPath, referenceBuilder);
+    this.incrementalCache =
+        IncrementalCache.load(
+            incrementalCachePath,
+            environment,
+            outputPath,
+            repoMetadataFilePath,
+            Arrays.asList(
+                Arrays.toString(excludePackages),
+                Arrays.toString(excludeClasses),
+                projectName,
+                disableChangelog,
+                disableLibraryOverview,
+                artifactVersion,
+                librariesBomVersion),
+            uid -> referenceBuilder.getIncludedTypeFullNames().contains(uid));
     this.classBuilder =
         new ClassBuilder(
             elementUtil,
             classLookup,
-            new ClassItemsLookup(environment, elementUtil),
+            classItemsLookup,
             outputPath,
             packageLookup,
-            referenceBuilder);
+            referenceBuilder,
+            incrementalCache,
+            metrics);
   }
 
   public boolean build() {
-    Processor processor = new Processor();
-    processor.repoMetadata = processor.repoMetadata.parseRepoMetadata(this.repoMetadataFilePath);
-    processor.process();
+    if (threads > 1) {
+      pool = new ForkJoinPool(threads);
+    }
+    writer = new BackgroundFileWriter(threads, metrics);
+    try {
+      Processor processor = new Processor();
+      processor.repoMetadata = processor.repoMetadata.parseRepoMetadata(this.repoMetadataFilePath);
+      processor.process();
+
+      //  write to yaml files, class files and package overviews are already written during
+      // processing
+      if (disableLibraryOverview) {
+        writer.write(processor.projectMetadataFile);
+      }
+      processor.packageMetadataFiles.forEach(writer::write);
+      writer.write(processor.tocFile);
+
+      // Generate new library overview page
+      if (!disableLibraryOverview) {
+        LibraryOverviewFile libraryOverviewFile =
+            new LibraryOverviewFile(
+                outputPath,
+                "overview.md",
+                artifactVersion,
+                librariesBomVersion,
+                repoMetadataFilePath,
+                processor.recommendedPackage);
+        writer.write(libraryOverviewFile);
+      }
+      writer.close();
+      incrementalCache.save();
+      metrics.recordCache("classLookup", classLookup.getCacheStats());
+      metrics.recordCache("classItemsLookup", classItemsLookup.getCacheStats());
+      metrics.recordCache("packageLookup", packageLookup.getCacheStats());
+      metrics.recordCache("enclosedElements", elementUtil.getEnclosedElementsCacheStats());
+      metrics.recordCache("sortedElements", elementUtil.getSortedElementsCacheStats());
+      metrics.finish();
+      return true;
+    } finally {
+      writer.shutdownNow();
+      writer = null;
+      if (pool != null) {
+        pool.shutdown();
+        pool = null;
+      }
+    }
+  }
+
+  /** Number of class files left as written by the previous run, 0 without incremental cache */
+  public int getReusedFilesCount() {
+    return incrementalCache.getReusedCount();
+  }
+
+  public int getRegeneratedFilesCount() {
+    return incrementalCache.getRegeneratedCount();
+  }
+
+  public BuildMetrics getMetrics() {
+    return metrics;
+  }
 
-    //  write to yaml files
-    if (disableLibraryOverview) {
-      FileUtil.dumpToFile(processor.projectMetadataFile);
+  /**
+   * Takes files from the queue until it is empty and applies the action to each of them, using
+   * every thread of the pool when running with more than one thread. The action must not touch the
+   * javac model.
+   */
+  private <T> void drain(Queue<T> files, Consumer<T> action) {
+    if (pool == null) {
+      T file;
+      while ((file = files.poll()) != null) {
+        action.accept(file);
+      }
+      return;
     }
-    processor.packageMetadataFiles.forEach(FileUtil::dumpToFile);
-    processor.classMetadataFiles.forEach(FileUtil::dumpToFile);
-    processor.packageOverviewFiles.forEach(FileUtil::dumpToFile);
-    FileUtil.dumpToFile(processor.tocFile);
-
-    // Generate new library overview page
-    if (!disableLibraryOverview) {
-      LibraryOverviewFile libraryOverviewFile =
-          new LibraryOverviewFile(
-              outputPath,
-              "overview.md",
-              artifactVersion,
-              librariesBomVersion,
-              repoMetadataFilePath,
-              processor.recommendedPackage);
-      FileUtil.dumpToFile(libraryOverviewFile);
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      tasks.add(
+          pool.submit(
+              () -> {
+                T file;
+                while ((file = files.poll()) != null) {
+                  action.accept(file);
+                }
+              }));
     }
-    return true;
+    tasks.forEach(ForkJoinTask::join);
   }
 
   @VisibleForTesting
@@ -123,11 +226,12 @@ public class YmlFilesBuilder {
     //  package summary pages
     private final List<MetadataFile> packageMetadataFiles = new ArrayList<>();
 
-    private final List<PackageOverviewFile> packageOverviewFiles = new ArrayList<>();
     //  packages
     private final List<MetadataFileItem> packageItems = new ArrayList<>();
     //  class/enum/interface/etc. pages
     private final List<MetadataFile> classMetadataFiles = new ArrayList<>();
+    //  doc comments of class files being rendered on the pool
+    private final List<ForkJoinTask<?>> renderTasks = new ArrayList<>();
 
     private final List<PackageElement> allPackages =
         elementUtil.extractPackageElements(environment.getIncludedElements());
@@ -142,10 +246,13 @@ public class YmlFilesBuilder {
     @VisibleForTesting
     void process() {
       ImmutableListMultimap<PackageGroup, PackageElement> organizedPackagesWithoutStubs =
-          packageLookup.organize(
-              allPackages.stream()
-                  .filter(pkg -> !packageLookup.isApiVersionStubPackage(pkg))
-                  .collect(Collectors.toList()));
+          metrics.time(
+              Phase.ORGANIZE_PACKAGES,
+              () ->
+                  packageLookup.organize(
+                      allPackages.stream()
+                          .filter(pkg -> !packageLookup.isApiVersionStubPackage(pkg))
+                          .collect(Collectors.toList())));
 
       // Use the provided recommended package in the .repo-metadata.json file, if set
       recommendedPackage =
@@ -180,6 +287,8 @@ public class YmlFilesBuilder {
         }
         tocFile.addTocItem(older);
       }
+      renderTasks.forEach(ForkJoinTask::join);
+      renderTasks.clear();
 
       for (MetadataFile packageFile : packageMetadataFiles) {
         packageItems.addAll(packageFile.getItems());
@@ -198,9 +307,40 @@ public class YmlFilesBuilder {
         projectBuilder.buildProjectMetadataFile(packageItems, projectMetadataFile);
       }
 
-      // post-processing
-      populateUidValues(packageMetadataFiles, classMetadataFiles);
-      referenceBuilder.updateExternalReferences(classMetadataFiles);
+      // post-processing, files only depend on the shared lookup from here on. Every class file
+      // has been kept in memory until now, as xref resolution needs the Lookup built from all of
+      // them, so peak heap still includes the whole model. Only from here on is each class file
+      // handed to the writer once done and no longer referenced, so it can be collected as soon
+      // as it is written.
+      Lookup lookup =
+          new Lookup(packageMetadataFiles, classMetadataFiles, incrementalCache::lookupEntries);
+      // Reused files whose links would resolve differently now are built after all
+      classMetadataFiles.replaceAll(file -> incrementalCache.checkLinks(file, lookup));
+      Queue<MetadataFile> pendingClassMetadataFiles =
+          new ConcurrentLinkedQueue<>(classMetadataFiles);
+      classMetadataFiles.clear();
+      drain(
+          pendingClassMetadataFiles,
+          classMetadataFile -> {
+            if (incrementalCache.isReused(classMetadataFile)) {
+              return;
+            }
+            // Files built again by checkLinks still have their doc comments to render
+            classMetadataFile.renderDeferredTexts();
+            int xrefs =
+                metrics.time(
+                    Phase.POPULATE_UID_VALUES,
+                    () ->
+                        populateUidValues(
+                            classMetadataFile,
+                            incrementalCache.buildContext(classMetadataFile, lookup)));
+            metrics.recordFile(
+                classMetadataFile.getFileName(),
+                classMetadataFile.getItems().size(),
+                classMetadataFile.getReferences().size(),
+                xrefs);
+            writer.write(classMetadataFile);
+          });
     }
 
     private TocItem buildPackage(PackageElement element) {
@@ -212,14 +352,23 @@ public class YmlFilesBuilder {
       // New package overview
       TocItem packageSummary = new TocItem(packageUid, "Package summary", packageUid + ".md", true);
       packageTocItem.getItems().add(packageSummary);
-      packageOverviewFiles.add(
+      writer.write(
           packageBuilder.buildPackageOverviewFile(
               element, repoMetadata, artifactVersion, recommendedPackage));
 
       // build classes/interfaces/enums/exceptions/annotations
+      int firstClassFile = classMetadataFiles.size();
+      long start = System.nanoTime();
       packageTocItem
           .getItems()
-          .addAll(classBuilder.buildFilesForPackage(element, classMetadataFiles, repoMetadata));
+          .addAll(
+              metrics.time(
+                  Phase.BUILD_FILES_FOR_PACKAGE,
+                  () ->
+                      classBuilder.buildFilesForPackage(
+                          element, classMetadataFiles, repoMetadata)));
+      metrics.recordPackage(packageUid, System.nanoTime() - start);
+      renderComments(classMetadataFiles.subList(firstClassFile, classMetadataFiles.size()));
 
       // build stubs
       TocItem stubPackagesItem = new TocItem("Stub packages", "Stub packages", "");
@@ -232,5 +381,22 @@ public class YmlFilesBuilder {
 
       return packageTocItem;
     }
+
+    /**
+     * Renders the doc comments of the class files of a package on the pool, while the next packages
+     * are built. Without pool, comments are rendered while the files are built.
+     */
+    private void renderComments(List<MetadataFile> packageClassFiles) {
+      if (pool == null) {
+        return;
+      }
+      List<MetadataFile> files = new ArrayList<>(packageClassFiles);
+      renderTasks.add(
+          pool.submit(
+              () ->
+                  metrics.time(
+                      Phase.RENDER_COMMENTS,
+                      () -> files.forEach(MetadataFile::renderDeferredTexts))));
+    }
   }
 }
@@ -1,6 +1,7 @@
 package com.microsoft.doclet;
 
 import com.microsoft.build.YmlFilesBuilder;
+import java.nio.file.Paths;
 import java.util.*;
 import javax.lang.model.SourceVersion;
 import javax.tools.Diagnostic.Kind;
@@ -42,8 +43,12 @@ public class DocFxDoclet implements Doclet {
     reporter.print(Kind.NOTE, "Project name: " + projectName);
     reporter.print(Kind.NOTE, "Disable changelog: " + disableChangelog);
     reporter.print(Kind.NOTE, "Disable libraryOverview: " + disableLibraryOverview);
+    reporter.print(Kind.NOTE, "Threads: " + threads);
+    reporter.print(Kind.NOTE, "Incremental cache: " + incrementalCachePath);
+    reporter.print(Kind.NOTE, "Metrics output: " + metricsOutputPath);
 
-    return (new YmlFilesBuilder(
+    YmlFilesBuilder ymlFilesBuilder =
+        new YmlFilesBuilder(
             environment,
             outputPath,
             excludePackages,
@@ -53,8 +58,24 @@ public class DocFxDoclet implements Doclet {
             disableLibraryOverview,
             artifactVersion,
             librariesBomVersion,
-            repoMetadataFilePath))
-        .build();
+            repoMetadataFilePath,
+            threads,
+            incrementalCachePath);
+    boolean result = ymlFilesBuilder.build();
+    if (incrementalCachePath != null) {
+      reporter.print(
+          Kind.NOTE,
+          "Incremental build: "
+              + ymlFilesBuilder.getReusedFilesCount()
+              + " class files reused, "
+              + ymlFilesBuilder.getRegeneratedFilesCount()
+              + " regenerated");
+    }
+    reporter.print(Kind.NOTE, ymlFilesBuilder.getMetrics().getSummary());
+    if (metricsOutputPath != null) {
+      ymlFilesBuilder.getMetrics().writeJson(Paths.get(metricsOutputPath));
+    }
+    return result;
   }
 
   @Override
@@ -71,6 +92,9 @@ public class DocFxDoclet implements Doclet {
   private String artifactVersion;
   private String librariesBomVersion;
   private String repoMetadataFilePath;
+  private int threads = 1;
+  private String incrementalCachePath;
+  private String metricsOutputPath;
 
   @Override
   public Set<? extends Option> getSupportedOptions() {
@@ -170,6 +194,40 @@ public class DocFxDoclet implements Doclet {
           return true;
         }
       },
+      new CustomOption(
+          "Number of threads used to render doc comments, post-process and write files",
+          Arrays.asList("-threads", "--threads"),
+          "threads") {
+        @Override
+        public boolean process(String option, List<String> arguments) {
+          try {
+            threads = Integer.parseInt(arguments.get(0));
+          } catch (NumberFormatException e) {
+            return false;
+          }
+          return threads > 0;
+        }
+      },
+      new CustomOption(
+          "Directory of the manifest used to skip classes unchanged since the previous run",
+          Arrays.asList("-incrementalCache", "--incremental-cache"),
+          "dir") {
+        @Override
+        public boolean process(String option, List<String> arguments) {
+          incrementalCachePath = arguments.get(0);
+          return true;
+        }
+      },
+      new CustomOption(
+          "JSON file the build metrics are written to",
+          Arrays.asList("-metricsOut", "--metrics-out"),
+          "file") {
+        @Override
+        public boolean process(String option, List<String> arguments) {
+          metricsOutputPath = arguments.get(0);
+          return true;
+        }
+      },
 
       // Support next properties for compatibility with Gradle javadoc task.
       // According to javadoc spec - these properties used by StandardDoclet and used only when
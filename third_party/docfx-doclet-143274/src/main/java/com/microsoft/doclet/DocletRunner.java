@@ -2,9 +2,25 @@ package com.microsoft.doclet;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
 import com.microsoft.util.OptionsFileUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.tools.ToolProvider;
 
 /**
@@ -13,15 +29,38 @@ import javax.tools.ToolProvider;
  *
  * <p>For example: <code>java DocletRunner $HOME/java-aiplatform/target/site/apidocs/options
  *     $HOME/java-aiplatform/target/site/apidocs/argfile</code>
+ *
+ * <p>Many modules can be documented by one JVM with: <code>java DocletRunner --batch manifest.json
+ * [max parallel modules]</code>, see {@link BatchModule} for the manifest format.
  */
 public class DocletRunner {
 
+  static final String BATCH_OPTION = "--batch";
+  // Exit code of a module which could not be run, as javadoc reports errors
+  static final int ERROR_EXIT_CODE = 1;
+
   public static void main(final String[] args) {
     if (args.length < 1) {
       System.err.println("Usage: java DocletRunner <options file> <argfile>");
       return;
     }
 
+    if (BATCH_OPTION.equals(args[0])) {
+      int parallelism = args.length > 2 ? parseParallelism(args[2]) : 1;
+      if (args.length < 2 || parallelism < 1) {
+        System.err.println(
+            "Usage: java DocletRunner "
+                + BATCH_OPTION
+                + " <manifest file> [max parallel modules, a positive number]");
+        return;
+      }
+      List<ModuleResult> results = runBatch(args[1], parallelism);
+      if (results.stream().anyMatch(result -> result.getExitCode() != 0)) {
+        System.exit(ERROR_EXIT_CODE);
+      }
+      return;
+    }
+
     run(
         args,
         new EnvironmentToArgumentsBuilder()
@@ -31,17 +70,150 @@ public class DocletRunner {
             .build());
   }
 
+  /** Returns the number of modules to run at once, or -1 when the argument is not a number */
   @VisibleForTesting
-  static void run(final String[] args, List<String> env) {
+  static int parseParallelism(String value) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  @VisibleForTesting
+  static int run(final String[] args, List<String> env) {
+    return run(args, env, null, null);
+  }
+
+  /**
+   * Runs javadoc with the doclet, output goes to System.out and System.err when streams are null
+   */
+  private static int run(
+      final String[] args, List<String> env, OutputStream out, OutputStream err) {
     List<String> combined = new ArrayList<>(env);
+    PrintStream errStream =
+        err == null ? System.err : new PrintStream(err, true, StandardCharsets.UTF_8);
     for (String arg : args) {
       if (!(new java.io.File(arg)).isFile()) {
-        System.err.println(String.format("File '%s' does not exist", args[0]));
+        errStream.println(String.format("File '%s' does not exist", arg));
       }
       combined.addAll(OptionsFileUtil.processOptionsFile(arg));
     }
-    ToolProvider.getSystemDocumentationTool()
-        .run(null, null, null, combined.toArray(new String[0]));
+    return ToolProvider.getSystemDocumentationTool()
+        .run(null, out, err, combined.toArray(new String[0]));
+  }
+
+  /**
+   * Runs every module of the manifest in this JVM, at most the given number at once, and reports
+   * the exit code and time of each of them. Modules only share read-only reference data, so the
+   * failure of one does not affect the others.
+   */
+  @VisibleForTesting
+  static List<ModuleResult> runBatch(String manifestPath, int parallelism) {
+    return runBatch(manifestPath, parallelism, DocletRunner::run);
+  }
+
+  @VisibleForTesting
+  static List<ModuleResult> runBatch(
+      String manifestPath, int parallelism, ModuleRunner moduleRunner) {
+    List<BatchModule> modules = readManifest(manifestPath);
+    long start = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+    List<ModuleResult> results = new ArrayList<>();
+    try {
+      List<Future<ModuleResult>> futures = new ArrayList<>();
+      for (BatchModule module : modules) {
+        futures.add(executor.submit(() -> runModule(module, parallelism > 1, moduleRunner)));
+      }
+      for (Future<ModuleResult> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Batch run interrupted", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Error during batch run", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long failed = results.stream().filter(result -> result.getExitCode() != 0).count();
+    for (ModuleResult result : results) {
+      System.out.println(
+          "Module "
+              + result.getName()
+              + ": exit code "
+              + result.getExitCode()
+              + " in "
+              + result.getMillis()
+              + " ms");
+    }
+    System.out.println(
+        "Batch: "
+            + results.size()
+            + " modules, "
+            + failed
+            + " failed in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            + " ms");
+    return results;
+  }
+
+  private static List<BatchModule> readManifest(String manifestPath) {
+    try (Reader reader = Files.newBufferedReader(Paths.get(manifestPath), StandardCharsets.UTF_8)) {
+      List<BatchModule> modules =
+          new Gson().fromJson(reader, new TypeToken<List<BatchModule>>() {}.getType());
+      if (modules == null) {
+        throw new RuntimeException("Batch manifest " + manifestPath + " is empty");
+      }
+      return modules;
+    } catch (IOException | JsonParseException e) {
+      throw new RuntimeException("Error during reading batch manifest " + manifestPath, e);
+    }
+  }
+
+  /**
+   * Runs one module of the batch. When modules run in parallel, the output of each one is collected
+   * and printed at once when it is done, so that the output of modules is not mixed. Anything
+   * thrown by the module, errors included, only fails that module.
+   */
+  private static ModuleResult runModule(
+      BatchModule module, boolean collectOutput, ModuleRunner moduleRunner) {
+    String name = module.getName();
+    ByteArrayOutputStream output = collectOutput ? new ByteArrayOutputStream() : null;
+    long start = System.nanoTime();
+    int exitCode;
+    try {
+      exitCode =
+          moduleRunner.run(
+              module.files.toArray(new String[0]),
+              new EnvironmentToArgumentsBuilder()
+                  .addOrIfExists("artifactVersion", module.artifactVersion)
+                  .addOrIfExists("librariesBomVersion", module.librariesBomVersion)
+                  .addOrIfExists("repoMetadataFilePath", module.repoMetadataFilePath)
+                  .build(),
+              output,
+              output);
+    } catch (Throwable e) {
+      PrintStream err = output == null ? System.err : new PrintStream(output, true);
+      err.println("Module " + name + " failed: " + e);
+      exitCode = ERROR_EXIT_CODE;
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    if (output != null) {
+      synchronized (System.out) {
+        System.out.println("Output of module " + name + ":");
+        System.out.print(output.toString(StandardCharsets.UTF_8));
+        System.out.flush();
+      }
+    }
+    return new ModuleResult(name, exitCode, millis);
+  }
+
+  /** Runs javadoc for the files of a module, output goes to System.out and System.err when null */
+  @VisibleForTesting
+  interface ModuleRunner {
+    int run(String[] files, List<String> env, OutputStream out, OutputStream err);
   }
 
   @VisibleForTesting
@@ -56,6 +228,14 @@ public class DocletRunner {
       return this;
     }
 
+    /** Adds the value, or the environment variable of the same name when there is no value */
+    public EnvironmentToArgumentsBuilder addOrIfExists(String name, String value) {
+      if (value != null) {
+        return add(name, value);
+      }
+      return addIfExists(name);
+    }
+
     @VisibleForTesting
     EnvironmentToArgumentsBuilder add(String name, String value) {
       env.add("-" + name, value);
@@ -66,4 +246,63 @@ public class DocletRunner {
       return env.build();
     }
   }
+
+  /**
+   * Module entry of the batch manifest, which is a JSON array of them:
+   *
+   * <pre>
+   * [
+   *   {
+   *     "name": "java-aiplatform",
+   *     "files": ["java-aiplatform/target/site/apidocs/options",
+   *               "java-aiplatform/target/site/apidocs/argfile"],
+   *     "artifactVersion": "3.24.0",
+   *     "librariesBomVersion": "26.19.0",
+   *     "repoMetadataFilePath": "java-aiplatform/.repo-metadata.json"
+   *   }
+   * ]
+   * </pre>
+   *
+   * Only <code>files</code> is required, versions and repo metadata path default to the environment
+   * variables of the same name. Paths are relative to the working directory, as in single module
+   * runs.
+   */
+  static class BatchModule {
+    String name;
+    List<String> files = new ArrayList<>();
+    String artifactVersion;
+    String librariesBomVersion;
+    String repoMetadataFilePath;
+
+    String getName() {
+      if (name != null) {
+        return name;
+      }
+      return files.isEmpty() ? "<unnamed>" : files.get(0);
+    }
+  }
+
+  static class ModuleResult {
+    private final String name;
+    private final int exitCode;
+    private final long millis;
+
+    ModuleResult(String name, int exitCode, long millis) {
+      this.name = name;
+      this.exitCode = exitCode;
+      this.millis = millis;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    int getExitCode() {
+      return exitCode;
+    }
+
+    long getMillis() {
+      return millis;
+    }
+  }
 }
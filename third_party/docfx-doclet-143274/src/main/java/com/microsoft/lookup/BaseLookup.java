@@ -6,6 +6,8 @@ import com.microsoft.model.MetadataFileItem;
 import com.microsoft.model.MethodParameter;
 import com.microsoft.model.Return;
 import com.microsoft.model.TypeParameter;
+import com.microsoft.util.CacheStats;
+import com.microsoft.util.LookupCache;
 import com.microsoft.util.YamlUtil;
 import com.sun.source.doctree.DeprecatedTree;
 import com.sun.source.doctree.DocCommentTree;
@@ -21,20 +23,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import jdk.javadoc.doclet.DocletEnvironment;
-import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 
 public abstract class BaseLookup<T extends Element> {
 
-  private static final int INITIAL_CAPACITY = 500000;
+  private static final int DEFAULT_EXPECTED_SIZE = 16;
+  private static final Pattern PACKAGE_PREFIX_PATTERN = Pattern.compile("\\b[a-z0-9_.]+\\.");
+  // Same as "^<.+>(.|\n)*" without the recursion of the alternation on long references
+  private static final Pattern TAG_REF_PATTERN = Pattern.compile("<.+>[^\r\u0085\u2028\u2029]*");
+  private static final Pattern DOUBLE_SPACES_PATTERN = Pattern.compile("(  )+");
   protected final Map<ElementKind, String> elementKindLookup =
       new HashMap<>() {
         {
@@ -50,17 +57,32 @@ public abstract class BaseLookup<T extends Element> {
         }
       };
 
-  protected Map<T, ExtendedMetadataFileItem> map;
+  private final LookupCache<T, ExtendedMetadataFileItem> cache;
   protected final DocletEnvironment environment;
 
   protected BaseLookup(DocletEnvironment environment) {
+    this(environment, DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * @param expectedSize number of elements expected to be looked up, used to size the cache
+   */
+  protected BaseLookup(DocletEnvironment environment, int expectedSize) {
     this.environment = environment;
-    this.map = new HashMap<>(INITIAL_CAPACITY);
+    this.cache = new LookupCache<>(expectedSize, this::buildMetadataFileItem);
   }
 
   protected ExtendedMetadataFileItem resolve(T key) {
-    map.computeIfAbsent(key, this::buildMetadataFileItem);
-    return map.get(key);
+    return cache.get(key);
+  }
+
+  /** Drops the cached item of the element, which is built again if looked up later */
+  public void evict(T key) {
+    cache.evict(key);
+  }
+
+  public CacheStats getCacheStats() {
+    return cache.getStats();
   }
 
   protected abstract ExtendedMetadataFileItem buildMetadataFileItem(T key);
@@ -173,6 +195,11 @@ public abstract class BaseLookup<T extends Element> {
     return resolve(key).getOverridden();
   }
 
+  /** Texts to set on the item built from the element once its file is built */
+  public List<Consumer<MetadataFileItem>> extractDeferredTexts(T key) {
+    return resolve(key).getDeferredTexts();
+  }
+
   protected Optional<DocCommentTree> getDocCommentTree(T element) {
     return Optional.ofNullable(environment.getDocTrees().getDocCommentTree(element));
   }
@@ -195,19 +222,23 @@ public abstract class BaseLookup<T extends Element> {
   }
 
   protected String determineComment(T element) {
+    return commentRenderer(element).get();
+  }
+
+  /**
+   * Parses the doc comment of the element right away, as javac is not thread-safe, and returns what
+   * renders it. Rendering only reads the parsed trees, so it can be done later on another thread.
+   */
+  protected Supplier<String> commentRenderer(T element) {
     String statusComment = getStatusComment(element);
-    String javadocComment = getJavadocComment(element);
-    return joinNullable(statusComment, javadocComment);
+    Optional<DocCommentTree> docCommentTree = getDocCommentTree(element);
+    return () ->
+        joinNullable(statusComment, docCommentTree.map(this::renderJavadocComment).orElse(null));
   }
 
-  private String getJavadocComment(T element) {
-    return getDocCommentTree(element)
-        .map(
-            tree -> {
-              String commentWithBlockTags = replaceLinksAndCodes(tree.getFullBody());
-              return replaceBlockTags(tree, commentWithBlockTags);
-            })
-        .orElse(null);
+  private String renderJavadocComment(DocCommentTree tree) {
+    String commentWithBlockTags = replaceLinksAndCodes(tree.getFullBody());
+    return replaceBlockTags(tree, commentWithBlockTags);
   }
 
   /** Safely combine two nullable strings with a newline delimiter */
@@ -252,23 +283,24 @@ public abstract class BaseLookup<T extends Element> {
    * </ul>
    */
   String replaceLinksAndCodes(List<? extends DocTree> items) {
-    return YamlUtil.cleanupHtml(
-        items.stream()
-            .map(
-                bodyItem -> {
-                  switch (bodyItem.getKind()) {
-                    case LINK:
-                    case LINK_PLAIN:
-                      return buildXrefTag((LinkTree) bodyItem);
-                    case CODE:
-                      return buildCodeTag((LiteralTree) bodyItem);
-                    case LITERAL:
-                      return expandLiteralBody((LiteralTree) bodyItem);
-                    default:
-                      return String.valueOf(StringEscapeUtils.unescapeJava(bodyItem.toString()));
-                  }
-                })
-            .collect(Collectors.joining()));
+    StringBuilder result = new StringBuilder();
+    for (DocTree bodyItem : items) {
+      switch (bodyItem.getKind()) {
+        case LINK:
+        case LINK_PLAIN:
+          result.append(buildXrefTag((LinkTree) bodyItem));
+          break;
+        case CODE:
+          result.append(buildCodeTag((LiteralTree) bodyItem));
+          break;
+        case LITERAL:
+          result.append(expandLiteralBody((LiteralTree) bodyItem));
+          break;
+        default:
+          result.append(StringEscapeUtils.unescapeJava(bodyItem.toString()));
+      }
+    }
+    return YamlUtil.cleanupHtml(result.toString());
   }
 
   /**
@@ -282,13 +314,15 @@ public abstract class BaseLookup<T extends Element> {
     if (StringUtils.isEmpty(label)) {
       label = signature;
     }
-    return String.format(
-        "<xref uid=\"%s\" data-throw-if-not-resolved=\"false\">%s</xref>", signature, label);
+    return "<xref uid=\""
+        + signature
+        + "\" data-throw-if-not-resolved=\"false\">"
+        + label
+        + "</xref>";
   }
 
   String buildCodeTag(LiteralTree literalTree) {
-    return String.format(
-        "<code>%s</code>", StringEscapeUtils.unescapeJava(literalTree.getBody().toString()));
+    return "<code>" + StringEscapeUtils.unescapeJava(literalTree.getBody().toString()) + "</code>";
   }
 
   String expandLiteralBody(LiteralTree bodyItem) {
@@ -302,30 +336,32 @@ public abstract class BaseLookup<T extends Element> {
     if (!value.contains(".")) {
       return value;
     }
-    return Stream.of(StringUtils.split(value, "<"))
-        .map(s -> RegExUtils.removeAll(s, "\\b[a-z0-9_.]+\\."))
-        .collect(Collectors.joining("<"));
+    // Package names never span a '<', so the whole type can be shortened at once. Only repeated,
+    // leading and trailing '<' are dropped first, the way splitting on '<' drops them
+    if (value.startsWith("<") || value.endsWith("<") || value.contains("<<")) {
+      value = String.join("<", StringUtils.split(value, '<'));
+    }
+    return PACKAGE_PREFIX_PATTERN.matcher(value).replaceAll("");
   }
 
   private String getSeeAlsoSummary(Set<String> seeItems) {
-    return String.format("\nSee Also: %s\n", String.join(", ", seeItems));
+    return "\nSee Also: " + String.join(", ", seeItems) + "\n";
   }
 
   private String getDeprecatedSummary(DeprecatedTree deprecatedTree) {
-    return String.format(
-        "\n<strong>Deprecated.</strong> <em>%s</em>\n\n",
-        replaceLinksAndCodes(deprecatedTree.getBody()));
+    return "\n<strong>Deprecated.</strong> <em>"
+        + replaceLinksAndCodes(deprecatedTree.getBody())
+        + "</em>\n\n";
   }
 
   private String getSeeTagRef(SeeTree seeTree) {
     String ref =
         seeTree.getReference().stream().map(r -> String.valueOf(r)).collect(Collectors.joining(""));
     // if it's already a tag, use that otherwise build xref tag
-    if (ref.matches("^<.+>(.|\n)*")) {
-      return ref.replaceAll("\n", "").replaceAll("(  )+", " ");
+    if (TAG_REF_PATTERN.matcher(ref).matches()) {
+      return DOUBLE_SPACES_PATTERN.matcher(ref.replace("\n", "")).replaceAll(" ");
     }
-    return String.format(
-        "<xref uid=\"%1$s\" data-throw-if-not-resolved=\"false\">%1$s</xref>", ref);
+    return "<xref uid=\"" + ref + "\" data-throw-if-not-resolved=\"false\">" + ref + "</xref>";
   }
 
   public String extractStatus(T element) {
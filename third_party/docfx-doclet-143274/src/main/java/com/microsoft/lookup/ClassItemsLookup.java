@@ -2,6 +2,7 @@ package com.microsoft.lookup;
 
 import com.microsoft.lookup.model.ExtendedMetadataFileItem;
 import com.microsoft.model.ExceptionItem;
+import com.microsoft.model.MetadataFileItem;
 import com.microsoft.model.MethodParameter;
 import com.microsoft.model.Return;
 import com.microsoft.util.CommentHelper;
@@ -16,7 +17,12 @@ import com.sun.source.doctree.ThrowsTree;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
@@ -27,11 +33,23 @@ import javax.lang.model.type.TypeKind;
 import jdk.javadoc.doclet.DocletEnvironment;
 
 public class ClassItemsLookup extends BaseLookup<Element> {
+  // Members are evicted once their class is built, so the cache only holds those of a few classes
+  private static final int EXPECTED_SIZE = 256;
+
   private Utils utils;
+  // Whether doc comments are rendered once the file of the class is built, on the threads
+  // post-processing files, rather than while the items are built
+  private final boolean deferRendering;
 
   public ClassItemsLookup(DocletEnvironment environment, ElementUtil elementUtil) {
-    super(environment);
+    this(environment, elementUtil, false);
+  }
+
+  public ClassItemsLookup(
+      DocletEnvironment environment, ElementUtil elementUtil, boolean deferRendering) {
+    super(environment, EXPECTED_SIZE);
     utils = new Utils(environment, elementUtil);
+    this.deferRendering = deferRendering;
   }
 
   @Override
@@ -54,7 +72,6 @@ public class ClassItemsLookup extends BaseLookup<Element> {
             setName(elementQName);
             setType(determineType(element));
             setPackageName(packageName);
-            setSummary(determineComment(element));
           }
         };
 
@@ -62,7 +79,7 @@ public class ClassItemsLookup extends BaseLookup<Element> {
         element.getModifiers().stream().map(String::valueOf).collect(Collectors.joining(" "));
     if (element instanceof ExecutableElement) {
       ExecutableElement exeElement = (ExecutableElement) element;
-      List<MethodParameter> parameters = extractParameters(exeElement);
+      List<MethodParameter> parameters = extractParameters(exeElement, result);
       String paramsString =
           parameters.stream()
               .map(
@@ -81,13 +98,18 @@ public class ClassItemsLookup extends BaseLookup<Element> {
               result.getName()));
       result.setConstructorContent(String.format("%s %s", modifiers, result.getName()));
       result.setParameters(parameters);
-      result.setExceptions(extractExceptions(exeElement));
-      result.setReturn(extractReturn(exeElement));
+      result.setExceptions(extractExceptions(exeElement, result));
+      result.setReturn(extractReturn(exeElement, result));
       if (exeElement.getKind() == ElementKind.METHOD) {
         result.setOverridden(extractOverriddenUid(utils.overriddenMethod(exeElement)));
-        result.setSummary(determineComment(exeElement));
       }
     }
+    setText(
+        result,
+        element.getKind() == ElementKind.METHOD
+            ? commentRenderer((ExecutableElement) element)
+            : commentRenderer(element),
+        MetadataFileItem::setSummary);
     result.setNameWithType(String.format("%s.%s", classSNameWithGenericsSupport, result.getName()));
     result.setFullName(String.format("%s.%s", classQNameWithGenericsSupport, result.getName()));
     result.setOverload(convertFullNameToOverload(result.getFullName()));
@@ -101,74 +123,126 @@ public class ClassItemsLookup extends BaseLookup<Element> {
     return result;
   }
 
+  /**
+   * Sets the rendered text on the item, or on the item built from it once its file is built when
+   * rendering is deferred. Without item, the text is always set right away.
+   */
+  private void setText(
+      @Nullable ExtendedMetadataFileItem result,
+      Supplier<String> renderer,
+      BiConsumer<MetadataFileItem, String> setter) {
+    if (deferRendering && result != null) {
+      result.addDeferredText(item -> setter.accept(item, renderer.get()));
+    } else {
+      setter.accept(result, renderer.get());
+    }
+  }
+
   List<MethodParameter> extractParameters(ExecutableElement element) {
+    return extractParameters(element, null);
+  }
+
+  private List<MethodParameter> extractParameters(
+      ExecutableElement element, @Nullable ExtendedMetadataFileItem result) {
     return element.getParameters().stream()
         .map(
             o -> {
               String paramName = String.valueOf(o.getSimpleName());
               String paramType = String.valueOf(o.asType());
-              return new MethodParameter(
-                  paramName, paramType, extractParameterDescription(element, paramName));
+              MethodParameter parameter = new MethodParameter(paramName, paramType, null);
+              setText(
+                  result,
+                  parameterDescriptionRenderer(element, paramName),
+                  (item, description) -> parameter.setDescription(description));
+              return parameter;
             })
         .collect(Collectors.toList());
   }
 
   String extractParameterDescription(ExecutableElement method, String paramName) {
-    return getDocCommentTree(method)
-        .map(
-            docTree ->
-                docTree.getBlockTags().stream()
-                    .filter(o -> o.getKind() == Kind.PARAM)
-                    .map(o -> (ParamTree) o)
-                    .filter(o -> paramName.equals(String.valueOf(o.getName())))
-                    .map(o -> replaceLinksAndCodes(o.getDescription()))
-                    .findFirst()
-                    .orElse(null))
-        .orElse(null);
+    return parameterDescriptionRenderer(method, paramName).get();
+  }
+
+  private Supplier<String> parameterDescriptionRenderer(
+      ExecutableElement method, String paramName) {
+    return blockTagRenderer(
+        method,
+        Kind.PARAM,
+        o -> paramName.equals(String.valueOf(((ParamTree) o).getName())),
+        o -> ((ParamTree) o).getDescription());
   }
 
   List<ExceptionItem> extractExceptions(ExecutableElement methodElement) {
+    return extractExceptions(methodElement, null);
+  }
+
+  private List<ExceptionItem> extractExceptions(
+      ExecutableElement methodElement, @Nullable ExtendedMetadataFileItem result) {
     return methodElement.getThrownTypes().stream()
         .map(
             o -> {
               String exceptionType = String.valueOf(o);
-              return new ExceptionItem(exceptionType, extractExceptionDescription(methodElement));
+              ExceptionItem exceptionItem = new ExceptionItem(exceptionType, null);
+              setText(
+                  result,
+                  exceptionDescriptionRenderer(methodElement),
+                  (item, description) -> exceptionItem.setDescription(description));
+              return exceptionItem;
             })
         .collect(Collectors.toList());
   }
 
   String extractExceptionDescription(ExecutableElement methodElement) {
-    return getDocCommentTree(methodElement)
-        .map(
-            docTree ->
-                docTree.getBlockTags().stream()
-                    .filter(o -> o.getKind() == Kind.THROWS)
-                    .map(o -> (ThrowsTree) o)
-                    .map(o -> replaceLinksAndCodes(o.getDescription()))
-                    .findFirst()
-                    .orElse(null))
-        .orElse(null);
+    return exceptionDescriptionRenderer(methodElement).get();
+  }
+
+  private Supplier<String> exceptionDescriptionRenderer(ExecutableElement methodElement) {
+    return blockTagRenderer(
+        methodElement, Kind.THROWS, o -> true, o -> ((ThrowsTree) o).getDescription());
   }
 
   Return extractReturn(ExecutableElement methodElement) {
+    return extractReturn(methodElement, null);
+  }
+
+  private Return extractReturn(
+      ExecutableElement methodElement, @Nullable ExtendedMetadataFileItem result) {
     if (methodElement.getReturnType().getKind() == TypeKind.VOID) {
       return null;
     }
-    return new Return(
-        String.valueOf(methodElement.getReturnType()), extractReturnDescription(methodElement));
+    Return returnValue = new Return(String.valueOf(methodElement.getReturnType()), null);
+    setText(
+        result,
+        returnDescriptionRenderer(methodElement),
+        (item, description) -> returnValue.setReturnDescription(description));
+    return returnValue;
   }
 
   String extractReturnDescription(ExecutableElement methodElement) {
-    return getDocCommentTree(methodElement)
-        .map(
-            docTree ->
-                docTree.getBlockTags().stream()
-                    .filter(o -> o.getKind() == Kind.RETURN)
-                    .map(o -> (ReturnTree) o)
-                    .map(o -> replaceLinksAndCodes(o.getDescription()))
-                    .findFirst()
-                    .orElse(null))
-        .orElse(null);
+    return returnDescriptionRenderer(methodElement).get();
+  }
+
+  private Supplier<String> returnDescriptionRenderer(ExecutableElement methodElement) {
+    return blockTagRenderer(
+        methodElement, Kind.RETURN, o -> true, o -> ((ReturnTree) o).getDescription());
+  }
+
+  /** Finds the first block tag of the kind matching the filter, and renders its description */
+  private Supplier<String> blockTagRenderer(
+      ExecutableElement method,
+      Kind kind,
+      Predicate<DocTree> filter,
+      Function<DocTree, List<? extends DocTree>> description) {
+    Optional<List<? extends DocTree>> tagDescription =
+        getDocCommentTree(method)
+            .flatMap(
+                docTree ->
+                    docTree.getBlockTags().stream()
+                        .filter(o -> o.getKind() == kind)
+                        .filter(filter)
+                        .<List<? extends DocTree>>map(description)
+                        .findFirst());
+    return () -> tagDescription.map(this::replaceLinksAndCodes).orElse(null);
   }
 
   Return extractReturn(VariableElement fieldElement) {
@@ -189,13 +263,18 @@ public class ClassItemsLookup extends BaseLookup<Element> {
     return "";
   }
 
-  private String determineComment(ExecutableElement methodElement) {
-    String inheritedInlineComment = getInheritedInlineCommentString(methodElement);
+  /** Looks up inherited doc comments right away, like the doc comment itself */
+  private Supplier<String> commentRenderer(ExecutableElement methodElement) {
+    List<? extends DocTree> inheritedInlineTags = getInheritedInlineDocTrees(methodElement);
     Optional<DocCommentTree> docCommentTree = getDocCommentTree(methodElement);
-    if (docCommentTree.isPresent()) {
-      inheritedInlineComment = replaceBlockTags(docCommentTree.get(), inheritedInlineComment);
-    }
-    return joinNullable(getStatusComment(methodElement), inheritedInlineComment);
+    String statusComment = getStatusComment(methodElement);
+    return () -> {
+      String inheritedInlineComment = replaceLinksAndCodes(inheritedInlineTags);
+      if (docCommentTree.isPresent()) {
+        inheritedInlineComment = replaceBlockTags(docCommentTree.get(), inheritedInlineComment);
+      }
+      return joinNullable(statusComment, inheritedInlineComment);
+    };
   }
 
   /**
@@ -203,11 +282,10 @@ public class ClassItemsLookup extends BaseLookup<Element> {
    * the packages like java.lang.Object, comments may be not available as doclet resolves from byte
    * code.
    */
-  private String getInheritedInlineCommentString(ExecutableElement exeElement) {
+  private List<? extends DocTree> getInheritedInlineDocTrees(ExecutableElement exeElement) {
     CommentHelper ch = getInheritedInlineTags(new CommentHelper(exeElement, utils));
     // Remove unresolved "@inheritDoc" tag.
-    List<? extends DocTree> dctree = utils.removeBlockTag(ch.inlineTags, DocTree.Kind.INHERIT_DOC);
-    return replaceLinksAndCodes(dctree);
+    return utils.removeBlockTag(ch.inlineTags, DocTree.Kind.INHERIT_DOC);
   }
 
   private CommentHelper getInheritedInlineTags(CommentHelper input) {
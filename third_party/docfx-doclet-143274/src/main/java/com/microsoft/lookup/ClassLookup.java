@@ -32,6 +32,11 @@ public class ClassLookup extends BaseLookup<TypeElement> {
     this.elementUtil = elementUtil;
   }
 
+  public ClassLookup(DocletEnvironment environment, ElementUtil elementUtil, int expectedSize) {
+    super(environment, expectedSize);
+    this.elementUtil = elementUtil;
+  }
+
   @Override
   protected ExtendedMetadataFileItem buildMetadataFileItem(TypeElement classElement) {
     List<ExtendedMetadataFileItem> inheritedMethods = new ArrayList<>();
@@ -28,6 +28,10 @@ public class PackageLookup extends BaseLookup<PackageElement> {
     super(environment);
   }
 
+  public PackageLookup(DocletEnvironment environment, int expectedSize) {
+    super(environment, expectedSize);
+  }
+
   @Override
   protected ExtendedMetadataFileItem buildMetadataFileItem(PackageElement packageElement) {
     String qName = String.valueOf(packageElement.getQualifiedName());
@@ -4,9 +4,11 @@ import com.microsoft.model.MetadataFileItem;
 import com.microsoft.model.MethodParameter;
 import com.microsoft.model.Return;
 import com.microsoft.model.TypeParameter;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /** Just container to keep cached precalculated values for lookup */
 public class ExtendedMetadataFileItem extends MetadataFileItem {
@@ -22,6 +24,8 @@ public class ExtendedMetadataFileItem extends MetadataFileItem {
   private String tocName;
   private Set<MetadataFileItem> references = new LinkedHashSet<>();
   private Integer nestedLevel;
+  // Texts rendered once the file of the item is built, instead of being set on this item
+  private final List<Consumer<MetadataFileItem>> deferredTexts = new ArrayList<>();
 
   public ExtendedMetadataFileItem(String uid) {
     super(uid);
@@ -118,4 +122,12 @@ public class ExtendedMetadataFileItem extends MetadataFileItem {
   public Set<MetadataFileItem> getReferences() {
     return references;
   }
+
+  public void addDeferredText(Consumer<MetadataFileItem> deferredText) {
+    deferredTexts.add(deferredText);
+  }
+
+  public List<Consumer<MetadataFileItem>> getDeferredTexts() {
+    return deferredTexts;
+  }
 }
@@ -3,7 +3,7 @@ package com.microsoft.model;
 public class ExceptionItem {
 
   private final String type;
-  private final String description;
+  private String description;
 
   public ExceptionItem(String type, String description) {
     this.type = type;
@@ -17,4 +17,8 @@ public class ExceptionItem {
   public String getDescription() {
     return description;
   }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
 }
@@ -3,7 +3,11 @@ package com.microsoft.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.microsoft.util.YamlUtil;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -14,6 +18,8 @@ public class MetadataFile implements YmlFile {
   private String fileName;
   private Set<MetadataFileItem> items = new LinkedHashSet<>();
   private Set<MetadataFileItem> references = new LinkedHashSet<>();
+  // Texts of items rendered after the file is built, see renderDeferredTexts
+  private final List<Runnable> deferredTexts = new ArrayList<>();
 
   public MetadataFile(String outputPath, String fileName) {
     this.outputPath = outputPath;
@@ -28,12 +34,42 @@ public class MetadataFile implements YmlFile {
     return references;
   }
 
+  /** Adds a reference to a type used by this file, unless the type is one of its items */
+  public void addReference(MetadataFileItem reference) {
+    if (!items.contains(reference)) {
+      references.add(reference);
+    }
+  }
+
+  public void addDeferredText(Runnable deferredText) {
+    deferredTexts.add(deferredText);
+  }
+
+  /**
+   * Sets the texts left to render once the file was built. They only read doc trees parsed while
+   * building it, so this can run on any thread.
+   */
+  public void renderDeferredTexts() {
+    deferredTexts.forEach(Runnable::run);
+    deferredTexts.clear();
+  }
+
   @JsonIgnore
   @Override
   public String getFileContent() {
-    Set<MetadataFileItem> sortedSet = new TreeSet<>(this.items);
-    this.items = sortedSet;
-    return METADATA_FILE_HEADER + YamlUtil.objectToYamlString(this);
+    return METADATA_FILE_HEADER + YamlUtil.objectToYamlString(sortedPayload());
+  }
+
+  @Override
+  public void writeFileContent(Writer writer) throws IOException {
+    writer.write(METADATA_FILE_HEADER);
+    YamlUtil.writeYaml(sortedPayload(), writer);
+  }
+
+  /** Sorts the items and returns what is serialized after the header */
+  private MetadataFile sortedPayload() {
+    this.items = new TreeSet<>(this.items);
+    return this;
   }
 
   @JsonIgnore
@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.microsoft.build.PackageOverviewFile.PackageChildSummary;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import org.apache.commons.lang3.RegExUtils;
@@ -122,8 +121,8 @@ public class MetadataFileItem implements Comparable<MetadataFileItem> {
     this.parent = parent;
   }
 
+  /** Children are sorted by the builders filling them, the getter is called by file writers */
   public List<String> getChildren() {
-    Collections.sort(children);
     return children;
   }
 
@@ -2,6 +2,8 @@ package com.microsoft.model;
 
 import com.microsoft.util.YamlUtil;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -37,10 +39,20 @@ public class TocFile extends ArrayList<TocItem> implements YmlFile {
 
   @Override
   public String getFileContent() {
+    return TOC_FILE_HEADER + YamlUtil.objectToYamlString(sortedPayload());
+  }
+
+  @Override
+  public void writeFileContent(Writer writer) throws IOException {
+    writer.write(TOC_FILE_HEADER);
+    YamlUtil.writeYaml(sortedPayload(), writer);
+  }
+
+  /** Sorts the toc items and returns what is serialized after the header */
+  private List<Object> sortedPayload() {
     sortByUid();
-    List<Object> tocContents =
-        new TocContents(projectName, disableChangelog, disableLibraryOverview, this).getContents();
-    return TOC_FILE_HEADER + YamlUtil.objectToYamlString(tocContents);
+    return new TocContents(projectName, disableChangelog, disableLibraryOverview, this)
+        .getContents();
   }
 
   @Override
@@ -1,8 +1,16 @@
 package com.microsoft.model;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public interface YmlFile {
 
   String getFileContent();
 
   String getFileNameWithPath();
+
+  /** Writes the same content as {@link #getFileContent()}, implementations may stream it */
+  default void writeFileContent(Writer writer) throws IOException {
+    writer.write(getFileContent());
+  }
 }
@@ -0,0 +1,94 @@
+package com.microsoft.util;
+
+import com.microsoft.build.PackageOverviewFile;
+import com.microsoft.model.LibraryOverviewFile;
+import com.microsoft.model.YmlFile;
+import com.microsoft.util.BuildMetrics.Phase;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes files on background threads, so that disk I/O overlaps with building the next files. The
+ * queue of pending files is bounded: once it is full, the submitting thread writes the file itself
+ * instead of letting finished files pile up on the heap.
+ */
+public class BackgroundFileWriter implements AutoCloseable {
+
+  private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+  private final ThreadPoolExecutor executor;
+  private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+  private final BuildMetrics metrics;
+
+  public BackgroundFileWriter(int threads) {
+    this(threads, new BuildMetrics());
+  }
+
+  /** Time spent writing is added to the yaml dump phase of the metrics */
+  public BackgroundFileWriter(int threads, BuildMetrics metrics) {
+    this.metrics = metrics;
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUE_CAPACITY_PER_THREAD),
+            runnable -> {
+              Thread thread = new Thread(runnable, "docfx-file-writer");
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  public void write(YmlFile ymlFile) {
+    submit(() -> FileUtil.dumpToFile(ymlFile));
+  }
+
+  public void write(LibraryOverviewFile libraryOverviewFile) {
+    submit(() -> FileUtil.dumpToFile(libraryOverviewFile));
+  }
+
+  public void write(PackageOverviewFile packageOverviewFile) {
+    submit(() -> FileUtil.dumpToFile(packageOverviewFile));
+  }
+
+  private void submit(Runnable task) {
+    throwIfFailed();
+    executor.execute(
+        () -> {
+          try {
+            metrics.time(Phase.YAML_DUMP, task);
+          } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+          }
+        });
+  }
+
+  /** Waits for all pending files to be written, rethrowing the first failure if any */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while writing files", e);
+    }
+    throwIfFailed();
+  }
+
+  /** Drops pending files without waiting for them, used when the build already failed */
+  public void shutdownNow() {
+    executor.shutdownNow();
+  }
+
+  private void throwIfFailed() {
+    RuntimeException e = failure.get();
+    if (e != null) {
+      throw e;
+    }
+  }
+}
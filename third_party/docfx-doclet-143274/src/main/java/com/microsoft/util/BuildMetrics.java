@@ -0,0 +1,239 @@
+package com.microsoft.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Wall time, CPU time and allocated bytes of the build phases, along with cache and per file
+ * counters. Phases running on several threads are measured on each of them and summed up.
+ */
+public class BuildMetrics {
+
+  public enum Phase {
+    ORGANIZE_PACKAGES("organizePackages"),
+    BUILD_FILES_FOR_PACKAGE("buildFilesForPackage"),
+    RENDER_COMMENTS("renderComments"),
+    POPULATE_UID_VALUES("populateUidValues"),
+    YAML_DUMP("yamlDump");
+
+    private final String name;
+
+    Phase(String name) {
+      this.name = name;
+    }
+  }
+
+  private static final int SLOWEST_COUNT = 10;
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+  private final boolean allocatedBytesSupported =
+      threadMXBean instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+          && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+
+  private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+  private final Map<String, CacheStats> caches = new LinkedHashMap<>();
+  private final Map<String, FileCounts> files = new ConcurrentSkipListMap<>();
+  private final PriorityQueue<Timing> slowestPackages =
+      new PriorityQueue<>(Comparator.comparingLong(timing -> timing.nanos));
+  private final PriorityQueue<Timing> slowestClasses =
+      new PriorityQueue<>(Comparator.comparingLong(timing -> timing.nanos));
+  private final long startNanos = System.nanoTime();
+  private long totalNanos;
+
+  public BuildMetrics() {
+    for (Phase phase : Phase.values()) {
+      phases.put(phase, new PhaseStats());
+    }
+  }
+
+  public void time(Phase phase, Runnable action) {
+    time(
+        phase,
+        () -> {
+          action.run();
+          return null;
+        });
+  }
+
+  public <T> T time(Phase phase, Supplier<T> action) {
+    long cpuStart = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    long allocatedStart = allocatedBytes();
+    long start = System.nanoTime();
+    try {
+      return action.get();
+    } finally {
+      PhaseStats stats = phases.get(phase);
+      stats.calls.increment();
+      stats.wallNanos.add(System.nanoTime() - start);
+      if (cpuTimeSupported) {
+        stats.cpuNanos.add(threadMXBean.getCurrentThreadCpuTime() - cpuStart);
+      }
+      if (allocatedBytesSupported) {
+        stats.allocatedBytes.add(allocatedBytes() - allocatedStart);
+      }
+    }
+  }
+
+  private long allocatedBytes() {
+    return allocatedBytesSupported
+        ? ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes()
+        : 0;
+  }
+
+  public void recordPackage(String name, long nanos) {
+    recordSlowest(slowestPackages, name, nanos);
+  }
+
+  public void recordClass(String uid, long nanos) {
+    recordSlowest(slowestClasses, uid, nanos);
+  }
+
+  private static void recordSlowest(PriorityQueue<Timing> slowest, String name, long nanos) {
+    synchronized (slowest) {
+      slowest.add(new Timing(name, nanos));
+      if (slowest.size() > SLOWEST_COUNT) {
+        slowest.poll();
+      }
+    }
+  }
+
+  public void recordCache(String name, CacheStats stats) {
+    caches.put(name, stats);
+  }
+
+  public void recordFile(String fileName, int items, int references, int xrefs) {
+    files.put(fileName, new FileCounts(items, references, xrefs));
+  }
+
+  /** Marks the end of the build */
+  public void finish() {
+    totalNanos = System.nanoTime() - startNanos;
+  }
+
+  public String getSummary() {
+    return "Build metrics: "
+        + toMillis(totalNanos)
+        + " ms total, "
+        + files.size()
+        + " class files, "
+        + phases.entrySet().stream()
+            .map(
+                entry ->
+                    entry.getKey().name + " " + toMillis(entry.getValue().wallNanos.sum()) + " ms")
+            .collect(Collectors.joining(", "));
+  }
+
+  public void writeJson(Path path) {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("totalWallTimeMs", toMillis(totalNanos));
+    report.put("cpuTimeSupported", cpuTimeSupported);
+    report.put("allocatedBytesSupported", allocatedBytesSupported);
+
+    Map<String, Object> phaseReport = new LinkedHashMap<>();
+    phases.forEach(
+        (phase, stats) -> {
+          Map<String, Object> values = new LinkedHashMap<>();
+          values.put("calls", stats.calls.sum());
+          values.put("wallTimeMs", toMillis(stats.wallNanos.sum()));
+          values.put("cpuTimeMs", toMillis(stats.cpuNanos.sum()));
+          values.put("allocatedBytes", stats.allocatedBytes.sum());
+          phaseReport.put(phase.name, values);
+        });
+    report.put("phases", phaseReport);
+
+    Map<String, Object> cacheReport = new LinkedHashMap<>();
+    caches.forEach(
+        (name, stats) -> {
+          Map<String, Object> values = new LinkedHashMap<>();
+          values.put("hits", stats.getHits());
+          values.put("misses", stats.getMisses());
+          cacheReport.put(name, values);
+        });
+    report.put("caches", cacheReport);
+    report.put("slowestPackages", sortedTimings(slowestPackages));
+    report.put("slowestClasses", sortedTimings(slowestClasses));
+    report.put("files", files);
+
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        GSON.toJson(report, writer);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error during metrics report write", e);
+    }
+  }
+
+  private static List<Map<String, Object>> sortedTimings(PriorityQueue<Timing> slowest) {
+    List<Timing> timings;
+    synchronized (slowest) {
+      timings = new ArrayList<>(slowest);
+    }
+    timings.sort(Comparator.comparingLong((Timing timing) -> timing.nanos).reversed());
+    List<Map<String, Object>> result = new ArrayList<>();
+    for (Timing timing : timings) {
+      Map<String, Object> values = new LinkedHashMap<>();
+      values.put("name", timing.name);
+      values.put("wallTimeMs", toMillis(timing.nanos));
+      result.add(values);
+    }
+    return result;
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static class PhaseStats {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+  }
+
+  private static class Timing {
+    private final String name;
+    private final long nanos;
+
+    Timing(String name, long nanos) {
+      this.name = name;
+      this.nanos = nanos;
+    }
+  }
+
+  private static class FileCounts {
+    private final int items;
+    private final int references;
+    private final int xrefs;
+
+    FileCounts(int items, int references, int xrefs) {
+      this.items = items;
+      this.references = references;
+      this.xrefs = xrefs;
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package com.microsoft.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Request and miss counters of a cache, safe to update from several threads */
+public class CacheStats {
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public void recordRequest() {
+    requests.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public long getHits() {
+    return requests.sum() - misses.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+}
@@ -2,9 +2,7 @@ package com.microsoft.util;
 
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -16,24 +14,30 @@ import org.apache.commons.lang3.StringUtils;
 
 public class ElementUtil {
 
-  private static final int INITIAL_CAPACITY = 1000000;
+  private static final int DEFAULT_EXPECTED_SIZE = 16;
   private final Set<Pattern> excludePackages = new HashSet<>();
   private final Set<Pattern> excludeClasses = new HashSet<>();
 
-  private final Map<Element, List<? extends Element>> elementMap;
-  private final Map<Element, List<TypeElement>> elementSortedMap;
+  private final LookupCache<Element, List<? extends Element>> elementMap;
+  private final LookupCache<Element, List<TypeElement>> elementSortedMap;
 
   public ElementUtil(String[] excludePackages, String[] excludeClasses) {
+    this(excludePackages, excludeClasses, DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * @param expectedSize number of packages and types the doclet runs on, used to size the caches
+   */
+  public ElementUtil(String[] excludePackages, String[] excludeClasses, int expectedSize) {
     this.excludePackages.addAll(
         Stream.of(excludePackages).map(o -> Pattern.compile(o)).collect(Collectors.toSet()));
     this.excludeClasses.addAll(
         Stream.of(excludeClasses).map(o -> Pattern.compile(o)).collect(Collectors.toSet()));
-    this.elementMap = new ConcurrentHashMap<>(INITIAL_CAPACITY);
-    this.elementSortedMap = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+    this.elementMap = new LookupCache<>(expectedSize, this::getEnclosedElementsInternal);
+    this.elementSortedMap = new LookupCache<>(expectedSize, this::extractSortedElementsInternal);
   }
 
   public List<TypeElement> extractSortedElements(Element element) {
-    elementSortedMap.computeIfAbsent(element, this::extractSortedElementsInternal);
     return elementSortedMap.get(element);
   }
 
@@ -53,10 +57,17 @@ public class ElementUtil {
   }
 
   public List<? extends Element> getEnclosedElements(Element element) {
-    elementMap.computeIfAbsent(element, this::getEnclosedElementsInternal);
     return elementMap.get(element);
   }
 
+  public CacheStats getEnclosedElementsCacheStats() {
+    return elementMap.getStats();
+  }
+
+  public CacheStats getSortedElementsCacheStats() {
+    return elementSortedMap.getStats();
+  }
+
   private List<? extends Element> getEnclosedElementsInternal(Element element) {
     return element.getEnclosedElements();
   }
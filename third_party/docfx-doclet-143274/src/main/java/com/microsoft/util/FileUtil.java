@@ -3,7 +3,11 @@ package com.microsoft.util;
 import com.microsoft.build.PackageOverviewFile;
 import com.microsoft.model.LibraryOverviewFile;
 import com.microsoft.model.YmlFile;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -22,8 +26,20 @@ public class FileUtil {
     }
   }
 
+  /** Stream yml file content to file, without holding the whole content in memory */
   public static void dumpToFile(YmlFile ymlFile) {
-    dumpToFile(ymlFile.getFileContent(), ymlFile.getFileNameWithPath());
+    try {
+      Path path = Paths.get(ymlFile.getFileNameWithPath());
+      Files.createDirectories(path.getParent());
+      // Same charset and replacement of unmappable characters as String.getBytes()
+      try (Writer writer =
+          new BufferedWriter(
+              new OutputStreamWriter(Files.newOutputStream(path), Charset.defaultCharset()))) {
+        ymlFile.writeFileContent(writer);
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException("Error during dump to file", ioe);
+    }
   }
 
   public static void dumpToFile(LibraryOverviewFile libraryOverviewFile) {
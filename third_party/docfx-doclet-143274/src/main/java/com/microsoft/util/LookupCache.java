@@ -0,0 +1,45 @@
+package com.microsoft.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Memoizes values built from javadoc elements. Sized up front from the number of elements expected,
+ * and single-probe on lookup: the value is either found or built and stored by the same map
+ * operation. Entries no longer needed can be evicted, in which case they are built again if looked
+ * up later.
+ */
+public class LookupCache<K, V> {
+
+  private final Map<K, V> map;
+  private final Function<K, V> loader;
+  private final CacheStats stats = new CacheStats();
+
+  public LookupCache(int expectedSize, Function<K, V> loader) {
+    this.map = new ConcurrentHashMap<>(Math.max(expectedSize, 1));
+    this.loader =
+        key -> {
+          stats.recordMiss();
+          return loader.apply(key);
+        };
+  }
+
+  /** Returns the cached value of the key, built by the loader on the first lookup */
+  public V get(K key) {
+    stats.recordRequest();
+    return map.computeIfAbsent(key, loader);
+  }
+
+  public void evict(K key) {
+    map.remove(key);
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public CacheStats getStats() {
+    return stats;
+  }
+}
@@ -5,6 +5,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator.Feature;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 
 public class YamlUtil {
@@ -16,6 +19,30 @@ public class YamlUtil {
           .setSerializationInclusion(Include.NON_NULL)
           .setSerializationInclusion(Include.NON_EMPTY);
 
+  // Replacements are applied one after the other, each in its own pass over the text, as each one
+  // may match the output of the previous ones
+  private static final HtmlReplacement[] HTML_REPLACEMENTS = {
+    new HtmlReplacement("<pre>", "<pre>([^<]+)</pre>", "$1"),
+    new HtmlReplacement(
+        "<pre><code>", "<pre><code>", "<pre class=\"prettyprint lang-java\"><code>"),
+    new HtmlReplacement("<", "<([A-Z][^<]+||)>", "&lt;$1&gt;"),
+    new HtmlReplacement("`", "`([^`]+)`", "<code>$1</code>"),
+    new HtmlReplacement("](", "\\[([^]]+)]\\(([^)]+)\\)", "<a href=\"$2\">$1</a>"),
+    new HtmlReplacement("{@link", "\\{@link *\"([^\\{]+)\" *\\}", "<a href=\"$1\">$1</a>"),
+    new HtmlReplacement(
+        "][",
+        "\\[([^]]+)]\\[([^]]+)\\]",
+        "<xref uid=\"$2\" data-throw-if-not-resolved=\"false\">$1</xref>"),
+    new HtmlReplacement(
+        "{@link",
+        "\\{@link *([^\\{\"]+) *\\}",
+        "<xref uid=\"$1\" data-throw-if-not-resolved=\"false\">$1</xref>"),
+    new HtmlReplacement(
+        "=======================",
+        "=======================([^=]+)=======================",
+        "<h3>$1</h3>")
+  };
+
   public static String objectToYamlString(Object object) {
     try {
       return mapper.writeValueAsString(object);
@@ -24,22 +51,43 @@ public class YamlUtil {
     }
   }
 
+  /** Streams the object as yaml to the writer, without building the whole document in memory */
+  public static void writeYaml(Object object, Writer writer) throws IOException {
+    mapper.writeValue(writer, object);
+  }
+
   public static String cleanupHtml(String text) {
     if (StringUtils.isBlank(text)) {
       return text;
     }
-    return text.replaceAll("<pre>([^<]+)</pre>", "$1")
-        .replaceAll("<pre><code>", "<pre class=\"prettyprint lang-java\"><code>")
-        .replaceAll("<([A-Z][^<]+||)>", "&lt;$1&gt;")
-        .replaceAll("`([^`]+)`", "<code>$1</code>")
-        .replaceAll("\\[([^]]+)]\\(([^)]+)\\)", "<a href=\"$2\">$1</a>")
-        .replaceAll("\\{@link *\"([^\\{]+)\" *\\}", "<a href=\"$1\">$1</a>")
-        .replaceAll(
-            "\\[([^]]+)]\\[([^]]+)\\]",
-            "<xref uid=\"$2\" data-throw-if-not-resolved=\"false\">$1</xref>")
-        .replaceAll(
-            "\\{@link *([^\\{\"]+) *\\}",
-            "<xref uid=\"$1\" data-throw-if-not-resolved=\"false\">$1</xref>")
-        .replaceAll("=======================([^=]+)=======================", "<h3>$1</h3>");
+    String result = text;
+    for (HtmlReplacement replacement : HTML_REPLACEMENTS) {
+      result = replacement.apply(result);
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link String#replaceAll}, with the pattern compiled once. The text is only scanned
+   * when it contains the literal every match starts with, so passes that cannot match are skipped
+   * without building a matcher.
+   */
+  private static class HtmlReplacement {
+    private final String requiredLiteral;
+    private final Pattern pattern;
+    private final String replacement;
+
+    HtmlReplacement(String requiredLiteral, String regex, String replacement) {
+      this.requiredLiteral = requiredLiteral;
+      this.pattern = Pattern.compile(regex);
+      this.replacement = replacement;
+    }
+
+    String apply(String text) {
+      if (!text.contains(requiredLiteral)) {
+        return text;
+      }
+      return pattern.matcher(text).replaceAll(replacement);
+    }
   }
 }
@@ -72,6 +72,43 @@ public class BuilderUtilTest {
         "Bla bla <xref uid=\"a.b.OwnerClass.someMethod2(String p1, String p2)\" data-throw-if-not-resolved=\"false\">#someMethod2(String p1, String p2)</xref> bla");
   }
 
+  @Test
+  public void populateUidValuesResolvesEveryLinkOfLongText() {
+    Map<String, String> lookup = new HashMap<>();
+    StringBuilder text = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      lookup.put("Class" + i, "a.b.Class" + i);
+      String link = "Class" + (i % 2 == 0 ? i : i - 1);
+      text.append("Text ")
+          .append(i)
+          .append(" <xref uid=\"")
+          .append(link)
+          .append("\" data-throw-if-not-resolved=\"false\">")
+          .append(link)
+          .append("</xref>\n");
+      expected
+          .append("Text ")
+          .append(i)
+          .append(" <xref uid=\"a.b.")
+          .append(link)
+          .append("\" data-throw-if-not-resolved=\"false\">")
+          .append(link)
+          .append("</xref>\n");
+    }
+    text.append("<xref uid=\"Unknown\" data-throw-if-not-resolved=\"false\">Unknown</xref>");
+    expected.append("<xref uid=\"\" data-throw-if-not-resolved=\"false\">Unknown</xref>");
+
+    assertEquals(
+        "Wrong text with links",
+        expected.toString(),
+        BuilderUtil.populateUidValues(text.toString(), new LookupContext(lookup, lookup)));
+    assertEquals(
+        "Text without links should be kept",
+        "No links",
+        BuilderUtil.populateUidValues("No links", new LookupContext(lookup, lookup)));
+  }
+
   private MetadataFileItem buildMetadataFileItem(String uid, String value) {
     MetadataFileItem item = new MetadataFileItem(uid);
     item.setSummary(
@@ -137,4 +174,13 @@ public class BuilderUtilTest {
     assertTrue("Wrong result list content", result.contains("df.mn.ClassOne"));
     assertTrue("Wrong result list content", result.contains("tr.T"));
   }
+
+  @Test
+  public void replaceUidAndSplit() {
+    assertEquals(
+        List.of("a.Map", "<", "b.K", ",", "c.List", "<", "d.V", "[]", ">", ">"),
+        BuilderUtil.replaceUidAndSplit("a.Map<b.K,c.List<d.V[]>>"));
+    assertEquals(List.of("int", "[]", "[]"), BuilderUtil.replaceUidAndSplit("int[][]"));
+    assertEquals(List.of("a.B"), BuilderUtil.replaceUidAndSplit("a.B"));
+  }
 }
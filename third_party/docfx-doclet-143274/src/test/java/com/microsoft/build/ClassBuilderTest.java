@@ -16,6 +16,9 @@
 package com.microsoft.build;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
 import com.google.testing.compile.CompilationRule;
@@ -24,10 +27,16 @@ import com.microsoft.lookup.ClassLookup;
 import com.microsoft.lookup.PackageLookup;
 import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
+import com.microsoft.util.BuildMetrics;
 import com.microsoft.util.ElementUtil;
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree.Kind;
+import com.sun.source.doctree.TextTree;
 import com.sun.source.util.DocTrees;
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import jdk.javadoc.doclet.DocletEnvironment;
@@ -48,17 +57,22 @@ public class ClassBuilderTest {
     elements = rule.getElements();
     environment = Mockito.mock(DocletEnvironment.class);
     docTrees = Mockito.mock(DocTrees.class);
+    classBuilder = buildClassBuilder(false);
+  }
+
+  private ClassBuilder buildClassBuilder(boolean deferRendering) {
     ElementUtil elementUtil = new ElementUtil(new String[0], new String[0]);
     ClassLookup classLookup = new ClassLookup(environment, elementUtil);
     PackageLookup packageLookup = new PackageLookup(environment);
-    classBuilder =
-        new ClassBuilder(
-            elementUtil,
-            classLookup,
-            new ClassItemsLookup(environment, elementUtil),
-            "./target",
-            packageLookup,
-            new ReferenceBuilder(environment, classLookup, elementUtil));
+    return new ClassBuilder(
+        elementUtil,
+        classLookup,
+        new ClassItemsLookup(environment, elementUtil, deferRendering),
+        "./target",
+        packageLookup,
+        new ReferenceBuilder(environment, classLookup, elementUtil),
+        IncrementalCache.disabled(),
+        new BuildMetrics());
   }
 
   @Test
@@ -89,4 +103,25 @@ public class ClassBuilderTest {
     Collection<MetadataFileItem> constructorItems = container.getItems();
     assertEquals("Container should contain 2 constructor items", constructorItems.size(), 2);
   }
+
+  @Test
+  public void addConstructorsInfoWithDeferredRendering() {
+    TypeElement element = elements.getTypeElement("com.microsoft.samples.subpackage.Person");
+    MetadataFile container = new MetadataFile("output", "name");
+    DocCommentTree docCommentTree = Mockito.mock(DocCommentTree.class);
+    TextTree textTree = Mockito.mock(TextTree.class);
+    when(environment.getElementUtils()).thenReturn(elements);
+    when(environment.getDocTrees()).thenReturn(docTrees);
+    when(docTrees.getDocCommentTree(any(Element.class))).thenReturn(docCommentTree);
+    doReturn(List.of(textTree)).when(docCommentTree).getFullBody();
+    when(textTree.getKind()).thenReturn(Kind.TEXT);
+    when(textTree.toString()).thenReturn("Default constructor");
+
+    buildClassBuilder(true).addConstructorsInfo(element, container);
+
+    MetadataFileItem constructorItem = container.getItems().iterator().next();
+    assertNull("Summary should be rendered with the file", constructorItem.getSummary());
+    container.renderDeferredTexts();
+    assertEquals("Wrong summary", "Default constructor", constructorItem.getSummary());
+  }
 }
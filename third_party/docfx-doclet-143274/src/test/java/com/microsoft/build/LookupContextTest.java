@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -50,4 +51,22 @@ public class LookupContextTest {
     assertTrue("Wrong value for local key 2", lookupContext.containsKey(localKeys[1]));
     assertFalse("Wrong value for unknown key", lookupContext.containsKey(unknownKey));
   }
+
+  @Test
+  public void recording() {
+    Map<String, String> resolvedKeys = new TreeMap<>();
+    LookupContext recordingContext = lookupContext.recording(resolvedKeys);
+
+    assertTrue("Wrong value for global key", recordingContext.containsKey(globalKey));
+    assertEquals("Wrong value for global key", recordingContext.resolve(globalKey), globalValue);
+    assertFalse("Wrong value for unknown key", recordingContext.containsKey(unknownKey));
+    assertEquals("Wrong ownerUid", recordingContext.getOwnerUid(), localKeys[0]);
+
+    Map<String, String> expected = new TreeMap<>();
+    expected.put(globalKey, globalValue);
+    expected.put(unknownKey, null);
+    assertEquals("Wrong resolved keys", expected, resolvedKeys);
+    assertTrue("Original context should not record", lookupContext.containsKey(localKeys[0]));
+    assertEquals("Wrong resolved keys", expected, resolvedKeys);
+  }
 }
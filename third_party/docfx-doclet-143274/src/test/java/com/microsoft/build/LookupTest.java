@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
+import com.microsoft.model.SpecViewModel;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Before;
@@ -85,6 +86,28 @@ public class LookupTest {
     assertFalse("Context shouldn't contain unknown key", context.containsKey("unknown key"));
   }
 
+  @Test
+  public void buildContextWhenKeyIsOverriddenByLaterFile() {
+    MetadataFile firstFile = new MetadataFile("path", "first");
+    firstFile.getItems().add(buildMetadataFileItem("a.First", "Shared"));
+    MetadataFileItem reference = new MetadataFileItem("a.List<a.First>");
+    reference.getSpecForJava().add(new SpecViewModel("x.Spec", "x.SpecName"));
+    firstFile.getReferences().add(reference);
+    MetadataFile secondFile = new MetadataFile("path", "second");
+    secondFile.getItems().add(buildMetadataFileItem("b.Second", "Shared"));
+
+    Lookup lookup = new Lookup(List.of(), List.of(firstFile, secondFile));
+    LookupContext firstContext = lookup.buildContext(firstFile);
+    LookupContext secondContext = lookup.buildContext(secondFile);
+
+    assertEquals("Wrong owner uid", "Shared", firstContext.getOwnerUid());
+    assertEquals("File should resolve its own key", "a.First", firstContext.resolve("Shared"));
+    assertEquals("Later file should win globally", "b.Second", secondContext.resolve("Shared"));
+    assertEquals("Wrong global key", "a.First", secondContext.resolve("a.First"));
+    assertEquals("Wrong specForJava key", "x.Spec", firstContext.resolve("x.SpecName"));
+    assertFalse("specForJava key should stay local", secondContext.containsKey("x.SpecName"));
+  }
+
   private MetadataFileItem buildMetadataFileItem(String uid, String nameWithType) {
     MetadataFileItem result = new MetadataFileItem(uid);
     result.setNameWithType(nameWithType);
@@ -16,8 +16,12 @@
 package com.microsoft.build;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import com.microsoft.build.ReferenceBuilder.ReferenceKind;
 import com.microsoft.lookup.ClassLookup;
 import com.microsoft.model.MetadataFile;
 import com.microsoft.model.MetadataFileItem;
@@ -25,6 +29,8 @@ import com.microsoft.util.ElementUtil;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.lang.model.element.Element;
 import jdk.javadoc.doclet.DocletEnvironment;
 import org.apache.commons.lang3.RegExUtils;
 import org.junit.Before;
@@ -34,10 +40,11 @@ import org.mockito.Mockito;
 public class ReferenceBuilderTest {
 
   private ReferenceBuilder referenceBuilder;
+  private DocletEnvironment environment;
 
   @Before
   public void setup() {
-    DocletEnvironment environment = Mockito.mock(DocletEnvironment.class);
+    environment = Mockito.mock(DocletEnvironment.class);
     ElementUtil elementUtil = new ElementUtil(new String[0], new String[0]);
     ClassLookup classLookup = new ClassLookup(environment, elementUtil);
     referenceBuilder = new ReferenceBuilder(environment, classLookup, elementUtil);
@@ -62,6 +69,69 @@ public class ReferenceBuilderTest {
     assertTrue("Wrong references content", content.contains("a.b.c.List<df.mn.ClassOne<tr.T>>"));
   }
 
+  @Test
+  public void expandComplexGenericsInReferencesSharesItems() {
+    MetadataFile first = new MetadataFile("path", "first");
+    MetadataFile second = new MetadataFile("path", "second");
+    first.getReferences().add(new MetadataFileItem("a.b.List<c.d.Type>"));
+    second.getReferences().add(new MetadataFileItem("a.b.Set<c.d.Type>"));
+    second.getItems().add(new MetadataFileItem("a.b.Set"));
+
+    referenceBuilder.expandComplexGenericsInReferences(first);
+    referenceBuilder.expandComplexGenericsInReferences(second);
+
+    assertSame(findReference(first, "c.d.Type"), findReference(second, "c.d.Type"));
+    assertEquals("Wrong short name", "Type", findReference(first, "c.d.Type").getName());
+    assertTrue(
+        "Items should not be referenced",
+        second.getReferences().stream().noneMatch(item -> item.getUid().equals("a.b.Set")));
+  }
+
+  @Test
+  public void addOverloadReferences() {
+    MetadataFile classMetadataFile = new MetadataFile("path", "name");
+    for (String parameter : List.of("int", "java.lang.String")) {
+      MetadataFileItem method = new MetadataFileItem("a.b.Type.run(" + parameter + ")");
+      method.setOverload("a.b.Type.run*");
+      method.setName("run(" + parameter + ")");
+      method.setNameWithType("Type.run(" + parameter + ")");
+      method.setFullName("a.b.Type.run(" + parameter + ")");
+      method.setPackageName("a.b");
+      referenceBuilder.addOverloadReferences(method, classMetadataFile);
+    }
+    // A plain reference with the same uid is a different entry
+    classMetadataFile.getReferences().add(new MetadataFileItem("a.b.Type.run*"));
+
+    assertEquals("Wrong references amount", 2, classMetadataFile.getReferences().size());
+    MetadataFileItem overload = classMetadataFile.getReferences().iterator().next();
+    assertEquals("Wrong name", "run", overload.getName());
+    assertEquals("Wrong nameWithType", "Type.run", overload.getNameWithType());
+    assertEquals("Wrong fullName", "a.b.Type.run", overload.getFullName());
+  }
+
+  private static MetadataFileItem findReference(MetadataFile file, String uid) {
+    return file.getReferences().stream()
+        .filter(item -> item.getUid().equals(uid))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  @Test
+  public void classifyReference() {
+    assertEquals(ReferenceKind.PRIMITIVE, ReferenceBuilder.classifyReference("int"));
+    assertEquals(ReferenceKind.JAVA, ReferenceBuilder.classifyReference("java.lang.String"));
+    assertEquals(
+        ReferenceKind.JAVA, ReferenceBuilder.classifyReference("javax.annotation.Nullable"));
+    assertEquals(
+        ReferenceKind.EXTERNAL, ReferenceBuilder.classifyReference("com.google.protobuf.Message"));
+    assertEquals(
+        ReferenceKind.EXTERNAL,
+        ReferenceBuilder.classifyReference("com.google.api.gax.rpc.ApiException"));
+    assertEquals(
+        ReferenceKind.OTHER, ReferenceBuilder.classifyReference("com.google.cloud.Storage"));
+    assertEquals(ReferenceKind.OTHER, ReferenceBuilder.classifyReference("integer.Type"));
+  }
+
   // todo add test case to cover reference item with in package
   @Test
   public void buildRefItem() {
@@ -85,6 +155,51 @@ public class ReferenceBuilderTest {
         RegExUtils.removeAll(expectedUid, "\\[\\]$"));
   }
 
+  @Test
+  public void buildRefItemLinksExternalReferences() {
+    MetadataFileItem javaItem = referenceBuilder.buildRefItem("java.lang.String");
+    MetadataFileItem externalItem = referenceBuilder.buildRefItem("com.google.protobuf.Message");
+    MetadataFileItem primitiveItem = referenceBuilder.buildRefItem("int");
+
+    assertEquals(
+        "Wrong href",
+        "https://docs.oracle.com/javase/8/docs/api/java/lang/String.html",
+        javaItem.getHref());
+    assertEquals(
+        "Wrong spec href",
+        javaItem.getHref(),
+        javaItem.getSpecForJava().iterator().next().getHref());
+    assertTrue("Should be external", externalItem.getIsExternal());
+    assertEquals(
+        "Wrong href",
+        "https://docs.oracle.com/javase/tutorial/java/nutsandbolts/datatypes.html",
+        primitiveItem.getHref());
+  }
+
+  @Test
+  public void buildRefItemScansIncludedElementsOnce() {
+    Set<Element> includedElements =
+        IntStream.range(0, 100)
+            .mapToObj(i -> Mockito.mock(Element.class))
+            .collect(Collectors.toSet());
+    Mockito.<Set<? extends Element>>when(environment.getIncludedElements())
+        .thenReturn(includedElements);
+
+    // Lookup cost must not depend on the number of references built
+    for (int i = 0; i < 2000; i++) {
+      referenceBuilder.buildRefItem("com.example.Type" + i);
+    }
+
+    verify(environment, times(1)).getIncludedElements();
+    for (Element element : includedElements) {
+      verify(element, times(1)).getEnclosedElements();
+    }
+    assertSame(
+        "Reference item should be reused",
+        referenceBuilder.buildRefItem("com.example.Type1"),
+        referenceBuilder.buildRefItem("com.example.Type1"));
+  }
+
   @Test
   public void getJavaReferenceHref() {
     String result1 = referenceBuilder.getJavaReferenceHref("java.lang.Object");
@@ -2,16 +2,25 @@ package com.microsoft.doclet;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.microsoft.util.FileUtilTest;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +30,10 @@ public class DocletRunnerTest {
   private final String PARAMS_DIR = "src/test/resources/test-doclet-params.txt";
   private final String EXPECTED_GENERATED_FILES_DIR = "src/test/resources/expected-generated-files";
   private final String OUTPUT_DIR = "target/test-out";
+  private final String INCREMENTAL_CACHE_DIR = "target/test-incremental-cache";
+  private final String METRICS_FILE = "target/test-metrics/report.json";
+  private final String BATCH_DIR = "target/test-batch";
+  private final String INCREMENTAL_EDITS_DIR = "target/test-incremental-edits";
 
   private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
   private final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
@@ -30,6 +43,10 @@ public class DocletRunnerTest {
   @Before
   public void cleanup() throws IOException {
     FileUtilTest.deleteDirectory(OUTPUT_DIR);
+    FileUtilTest.deleteDirectory(INCREMENTAL_CACHE_DIR);
+    Files.deleteIfExists(Path.of(METRICS_FILE));
+    FileUtilTest.deleteDirectory(BATCH_DIR);
+    FileUtilTest.deleteDirectory(INCREMENTAL_EDITS_DIR);
 
     System.setOut(new PrintStream(outContent));
     System.setErr(new PrintStream(errContent));
@@ -75,15 +92,369 @@ public class DocletRunnerTest {
                 "repoMetadataFilePath", "./src/test/java/com/microsoft/samples/.repo-metadata.json")
             .build());
 
+    assertGeneratedFilesMatchExpected();
+  }
+
+  @Test
+  public void testFilesGenerationWithThreads() throws IOException {
+    DocletRunner.run(
+        new String[] {PARAMS_DIR},
+        new DocletRunner.EnvironmentToArgumentsBuilder()
+            .add("artifactVersion", "0.18.0")
+            .add("librariesBomVersion", "26.19.0")
+            .add(
+                "repoMetadataFilePath", "./src/test/java/com/microsoft/samples/.repo-metadata.json")
+            .add("threads", "4")
+            .build());
+
+    assertGeneratedFilesMatchExpected();
+  }
+
+  @Test
+  public void testFilesGenerationWithMetricsOutput() throws IOException {
+    DocletRunner.run(
+        new String[] {PARAMS_DIR},
+        new DocletRunner.EnvironmentToArgumentsBuilder()
+            .add("artifactVersion", "0.18.0")
+            .add("librariesBomVersion", "26.19.0")
+            .add(
+                "repoMetadataFilePath", "./src/test/java/com/microsoft/samples/.repo-metadata.json")
+            .add("metricsOut", METRICS_FILE)
+            .build());
+
+    assertGeneratedFilesMatchExpected();
+    assertThat(outContent.toString() + errContent.toString()).contains("Build metrics: ");
+    JsonObject report =
+        JsonParser.parseString(Files.readString(Path.of(METRICS_FILE))).getAsJsonObject();
+    assertThat(report.getAsJsonObject("phases").keySet())
+        .containsExactly(
+            "organizePackages",
+            "buildFilesForPackage",
+            "renderComments",
+            "populateUidValues",
+            "yamlDump");
+    assertThat(
+            report.getAsJsonObject("caches").getAsJsonObject("classLookup").get("hits").getAsLong())
+        .isGreaterThan(0L);
+    assertThat(report.getAsJsonObject("files").keySet())
+        .contains("com.microsoft.samples.subpackage.Person.yml");
+    assertThat(report.getAsJsonArray("slowestClasses").size()).isEqualTo(10);
+  }
+
+  @Test
+  public void testIncrementalFilesGeneration() throws IOException {
+    runWithIncrementalCache();
+    assertGeneratedFilesMatchExpected();
+    int classFilesCount = assertIncrementalBuild("0 class files reused, (\\d+) regenerated");
+
+    // nothing changed, every class file is left as is
+    runWithIncrementalCache();
+    assertGeneratedFilesMatchExpected();
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 0 regenerated"))
+        .isEqualTo(classFilesCount);
+
+    // a class file missing from the output is built again
+    Files.delete(Path.of(OUTPUT_DIR, "com.microsoft.samples.subpackage.Person.yml"));
+    runWithIncrementalCache();
+    assertGeneratedFilesMatchExpected();
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 1 regenerated"))
+        .isEqualTo(classFilesCount - 1);
+
+    // a change of doclet options invalidates every class file
+    runWithIncrementalCache(PARAMS_DIR, "27.0.0");
+    assertThat(assertIncrementalBuild("0 class files reused, (\\d+) regenerated"))
+        .isEqualTo(classFilesCount);
+  }
+
+  @Test
+  public void testIncrementalFilesGenerationAfterSourceChanges() throws IOException {
+    Path sourceDir = Path.of(INCREMENTAL_EDITS_DIR, "src");
+    Path samplesDir = Path.of("src/test/java/com/microsoft/samples");
+    try (Stream<Path> files = Files.walk(samplesDir)) {
+      for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        Path copy = sourceDir.resolve("com/microsoft/samples").resolve(samplesDir.relativize(file));
+        Files.createDirectories(copy.getParent());
+        Files.copy(file, copy);
+      }
+    }
+    String incrementalOutputDir = INCREMENTAL_EDITS_DIR + "/incremental-out";
+    String cleanOutputDir = INCREMENTAL_EDITS_DIR + "/clean-out";
+    String params =
+        Files.readString(Path.of(PARAMS_DIR))
+            .replace("-sourcepath ./src/test/java", "-sourcepath ./" + sourceDir);
+    Files.writeString(
+        Path.of(INCREMENTAL_EDITS_DIR, "incremental-params.txt"),
+        params.replace(OUTPUT_DIR, incrementalOutputDir));
+    Files.writeString(
+        Path.of(INCREMENTAL_EDITS_DIR, "clean-params.txt"),
+        params.replace(OUTPUT_DIR, cleanOutputDir));
+
+    // incremental runs use several threads and clean runs one, which must give the same files
+    runWithIncrementalCache(INCREMENTAL_EDITS_DIR + "/incremental-params.txt", "26.19.0", "4");
+    assertGeneratedFilesMatchExpected(incrementalOutputDir);
+    int classFilesCount = assertIncrementalBuild("0 class files reused, (\\d+) regenerated");
+
+    // a doc comment change only invalidates the class and the subclass inheriting from it
+    Path person = sourceDir.resolve("com/microsoft/samples/subpackage/Person.java");
+    Files.writeString(
+        person,
+        Files.readString(person)
+            .replace("Class that describes some person", "Class that describes any person"));
+    Path personFile = Path.of(incrementalOutputDir, "com.microsoft.samples.subpackage.Person.yml");
+    Path superHeroFile = Path.of(incrementalOutputDir, "com.microsoft.samples.SuperHero.yml");
+    Path keyValuePairFile = Path.of(incrementalOutputDir, "com.microsoft.samples.KeyValuePair.yml");
+    FileTime unchanged = FileTime.fromMillis(1_000_000);
+    for (Path file : List.of(personFile, superHeroFile, keyValuePairFile)) {
+      Files.setLastModifiedTime(file, unchanged);
+    }
+    runWithIncrementalCache(INCREMENTAL_EDITS_DIR + "/incremental-params.txt", "26.19.0", "4");
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 2 regenerated"))
+        .isEqualTo(classFilesCount - 2);
+    assertThat(Files.getLastModifiedTime(personFile)).isNotEqualTo(unchanged);
+    assertThat(Files.getLastModifiedTime(superHeroFile)).isNotEqualTo(unchanged);
+    assertThat(Files.getLastModifiedTime(keyValuePairFile)).isEqualTo(unchanged);
+    assertThat(Files.readString(personFile)).contains("Class that describes any person");
+    runClean(INCREMENTAL_EDITS_DIR + "/clean-params.txt");
+    assertSameFiles(cleanOutputDir, incrementalOutputDir);
+
+    // a link to a member which does not exist yet is resolved to the class only
+    Path link = sourceDir.resolve("com/microsoft/samples/Link.java");
+    Files.writeString(
+        link,
+        Files.readString(link)
+            .replace(
+                "  public Collection<KeyValuePair<String, String>> getHeaders() {",
+                "  /** Headers, see {@link KeyValuePair#clear()} */\n"
+                    + "  public Collection<KeyValuePair<String, String>> getHeaders() {"));
+    runWithIncrementalCache(INCREMENTAL_EDITS_DIR + "/incremental-params.txt", "26.19.0", "4");
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 1 regenerated"))
+        .isEqualTo(classFilesCount - 1);
+    Path linkFile = Path.of(incrementalOutputDir, "com.microsoft.samples.Link.yml");
+    assertThat(Files.readString(linkFile))
+        .contains("<xref uid=\\\"com.microsoft.samples.KeyValuePair.clear*\\\"");
+
+    // a signature change only invalidates the class and the files whose links now resolve
+    // differently
+    Path keyValuePair = sourceDir.resolve("com/microsoft/samples/KeyValuePair.java");
+    Files.writeString(
+        keyValuePair,
+        Files.readString(keyValuePair)
+            .replace(
+                "  public V getValue() {", "  public void clear() {}\n\n  public V getValue() {"));
+    setLastModifiedTimes(incrementalOutputDir, unchanged);
+    runWithIncrementalCache(INCREMENTAL_EDITS_DIR + "/incremental-params.txt", "26.19.0", "4");
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 2 regenerated"))
+        .isEqualTo(classFilesCount - 2);
+    assertThat(changedClassFiles(incrementalOutputDir, unchanged))
+        .containsExactly(
+            keyValuePairFile.getFileName().toString(), linkFile.getFileName().toString());
+    assertThat(Files.readString(keyValuePairFile))
+        .contains("uid: \"com.microsoft.samples.KeyValuePair.clear()\"");
+    assertThat(Files.readString(linkFile))
+        .contains("<xref uid=\\\"com.microsoft.samples.KeyValuePair.clear()\\\"");
+    FileUtilTest.deleteDirectory(cleanOutputDir);
+    runClean(INCREMENTAL_EDITS_DIR + "/clean-params.txt");
+    assertSameFiles(cleanOutputDir, incrementalOutputDir);
+
+    // nothing changed, the files built again are reused with the links they resolved
+    runWithIncrementalCache(INCREMENTAL_EDITS_DIR + "/incremental-params.txt", "26.19.0", "4");
+    assertThat(assertIncrementalBuild("(\\d+) class files reused, 0 regenerated"))
+        .isEqualTo(classFilesCount);
+    assertSameFiles(cleanOutputDir, incrementalOutputDir);
+  }
+
+  private static void setLastModifiedTimes(String dir, FileTime time) throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(dir))) {
+      for (Path file : files.collect(Collectors.toList())) {
+        Files.setLastModifiedTime(file, time);
+      }
+    }
+  }
+
+  /** Names of the class files written since their time was set, package pages are all md files */
+  private static List<String> changedClassFiles(String dir, FileTime time) throws IOException {
+    List<String> changed = new ArrayList<>();
+    try (Stream<Path> files = Files.list(Path.of(dir))) {
+      for (Path file : files.sorted().collect(Collectors.toList())) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".yml")
+            && !name.equals("toc.yml")
+            && !Files.getLastModifiedTime(file).equals(time)) {
+          changed.add(name);
+        }
+      }
+    }
+    return changed;
+  }
+
+  @Test
+  public void testBatchFilesGeneration() throws IOException {
+    Files.createDirectories(Path.of(BATCH_DIR));
+    String params = Files.readString(Path.of(PARAMS_DIR));
+    for (String module : List.of("first", "second")) {
+      Files.writeString(
+          Path.of(BATCH_DIR, module + "-params.txt"),
+          params.replace(OUTPUT_DIR, BATCH_DIR + "/" + module + "-out"));
+    }
+    String repoMetadataFilePath = "./src/test/java/com/microsoft/samples/.repo-metadata.json";
+    JsonArray manifest = new JsonArray();
+    manifest.add(batchModule("first", BATCH_DIR + "/first-params.txt", repoMetadataFilePath));
+    manifest.add(batchModule("missing", BATCH_DIR + "/missing-params.txt", repoMetadataFilePath));
+    manifest.add(batchModule("second", BATCH_DIR + "/second-params.txt", repoMetadataFilePath));
+    Path manifestPath = Path.of(BATCH_DIR, "manifest.json");
+    Files.writeString(manifestPath, manifest.toString());
+
+    List<DocletRunner.ModuleResult> results = DocletRunner.runBatch(manifestPath.toString(), 2);
+
+    assertThat(
+            results.stream().map(DocletRunner.ModuleResult::getName).collect(Collectors.toList()))
+        .containsExactly("first", "missing", "second")
+        .inOrder();
+    assertThat(
+            results.stream()
+                .map(DocletRunner.ModuleResult::getExitCode)
+                .collect(Collectors.toList()))
+        .containsExactly(0, 1, 0)
+        .inOrder();
+    assertGeneratedFilesMatchExpected(BATCH_DIR + "/first-out");
+    assertGeneratedFilesMatchExpected(BATCH_DIR + "/second-out");
+    String output = outContent.toString();
+    // the error of a module goes to its own collected output
+    assertThat(output)
+        .contains(
+            "Output of module missing:\nFile '"
+                + BATCH_DIR
+                + "/missing-params.txt' does not exist");
+    assertThat(errContent.toString()).doesNotContain("does not exist");
+    assertThat(output).contains("Module missing: exit code 1 in ");
+    assertThat(output).contains("Batch: 3 modules, 1 failed in ");
+  }
+
+  @Test
+  public void testBatchWithThrowingModule() throws IOException {
+    Files.createDirectories(Path.of(BATCH_DIR));
+    JsonArray manifest = new JsonArray();
+    for (String name : List.of("first", "throwing", "second")) {
+      manifest.add(batchModule(name, name + "-params.txt", null));
+    }
+    Path manifestPath = Path.of(BATCH_DIR, "throwing-manifest.json");
+    Files.writeString(manifestPath, manifest.toString());
+
+    List<DocletRunner.ModuleResult> results =
+        DocletRunner.runBatch(
+            manifestPath.toString(),
+            2,
+            (files, env, out, err) -> {
+              if (files[0].startsWith("throwing")) {
+                throw new StackOverflowError();
+              }
+              return 0;
+            });
+
+    assertThat(
+            results.stream()
+                .map(DocletRunner.ModuleResult::getExitCode)
+                .collect(Collectors.toList()))
+        .containsExactly(0, 1, 0)
+        .inOrder();
+    String output = outContent.toString();
+    assertThat(output)
+        .contains(
+            "Output of module throwing:\nModule throwing failed: java.lang.StackOverflowError");
+    assertThat(output).contains("Module first: exit code 0 in ");
+    assertThat(output).contains("Module throwing: exit code 1 in ");
+    assertThat(output).contains("Module second: exit code 0 in ");
+    assertThat(output).contains("Batch: 3 modules, 1 failed in ");
+  }
+
+  @Test
+  public void testBatchWithInvalidParallelism() {
+    DocletRunner.main(new String[] {"--batch", "manifest.json", "two"});
+
+    assertThat(errContent.toString())
+        .contains("Usage: java DocletRunner --batch <manifest file> [max parallel modules");
+    assertThat(DocletRunner.parseParallelism(" 3")).isEqualTo(3);
+    assertThat(DocletRunner.parseParallelism("two")).isEqualTo(-1);
+  }
+
+  private JsonObject batchModule(String name, String paramsFile, String repoMetadataFilePath) {
+    JsonObject module = new JsonObject();
+    module.addProperty("name", name);
+    JsonArray files = new JsonArray();
+    files.add(paramsFile);
+    module.add("files", files);
+    module.addProperty("artifactVersion", "0.18.0");
+    module.addProperty("librariesBomVersion", "26.19.0");
+    module.addProperty("repoMetadataFilePath", repoMetadataFilePath);
+    return module;
+  }
+
+  private void runWithIncrementalCache() {
+    runWithIncrementalCache(PARAMS_DIR);
+  }
+
+  private void runWithIncrementalCache(String paramsFile) {
+    runWithIncrementalCache(paramsFile, "26.19.0", "1");
+  }
+
+  private void runWithIncrementalCache(String paramsFile, String librariesBomVersion) {
+    runWithIncrementalCache(paramsFile, librariesBomVersion, "1");
+  }
+
+  private void runWithIncrementalCache(
+      String paramsFile, String librariesBomVersion, String threads) {
+    outContent.reset();
+    errContent.reset();
+    DocletRunner.run(
+        new String[] {paramsFile},
+        new DocletRunner.EnvironmentToArgumentsBuilder()
+            .add("artifactVersion", "0.18.0")
+            .add("librariesBomVersion", librariesBomVersion)
+            .add(
+                "repoMetadataFilePath", "./src/test/java/com/microsoft/samples/.repo-metadata.json")
+            .add("incrementalCache", INCREMENTAL_CACHE_DIR)
+            .add("threads", threads)
+            .build());
+  }
+
+  private void runClean(String paramsFile) {
+    DocletRunner.run(
+        new String[] {paramsFile},
+        new DocletRunner.EnvironmentToArgumentsBuilder()
+            .add("artifactVersion", "0.18.0")
+            .add("librariesBomVersion", "26.19.0")
+            .add(
+                "repoMetadataFilePath", "./src/test/java/com/microsoft/samples/.repo-metadata.json")
+            .build());
+  }
+
+  /** Checks the reported counts of the last run and returns the one captured by the pattern */
+  private int assertIncrementalBuild(String expectedReport) {
+    Matcher matcher =
+        Pattern.compile("Incremental build: " + expectedReport)
+            .matcher(outContent.toString() + errContent.toString());
+    assertTrue("Missing or unexpected incremental build report", matcher.find());
+    return Integer.parseInt(matcher.group(1));
+  }
+
+  private void assertGeneratedFilesMatchExpected() throws IOException {
+    assertGeneratedFilesMatchExpected(OUTPUT_DIR);
+  }
+
+  private void assertGeneratedFilesMatchExpected(String outputDir) throws IOException {
+    assertSameFiles(EXPECTED_GENERATED_FILES_DIR, outputDir);
+  }
+
+  private void assertSameFiles(String expectedDir, String outputDir) throws IOException {
     List<Path> expectedFilePaths =
-        Files.list(Path.of(EXPECTED_GENERATED_FILES_DIR)).sorted().collect(Collectors.toList());
+        Files.list(Path.of(expectedDir)).sorted().collect(Collectors.toList());
     List<Path> generatedFilePaths =
-        Files.list(Path.of(OUTPUT_DIR)).sorted().collect(Collectors.toList());
+        Files.list(Path.of(outputDir)).sorted().collect(Collectors.toList());
 
     assertSameFileNames(expectedFilePaths, generatedFilePaths);
 
     for (Path expectedFilePath : expectedFilePaths) {
-      Path generatedFilePath = Path.of(OUTPUT_DIR, expectedFilePath.getFileName().toString());
+      Path generatedFilePath = Path.of(outputDir, expectedFilePath.getFileName().toString());
 
       String generatedFileContent = Files.readString(generatedFilePath);
       String expectedFileContent = Files.readString(expectedFilePath);
@@ -113,6 +113,15 @@ public class BaseLookupTest {
         "Wrong result for inner class with generic & inheritance",
         baseLookup.makeTypeShort("a.b.G<? extends a.b.List>"),
         "G<? extends List>");
+    assertEquals(
+        "Wrong result for leading '<'", baseLookup.makeTypeShort("<java.lang.String"), "String");
+    assertEquals(
+        "Wrong result for repeated '<'",
+        baseLookup.makeTypeShort("java.util.List<<java.lang.String>"),
+        "List<String>");
+    assertEquals(
+        "Wrong result for trailing '<'", baseLookup.makeTypeShort("java.util.List<"), "List");
+    assertEquals("Wrong result for only '<'", baseLookup.makeTypeShort("<<a.b.C<<d.E<"), "C<E");
   }
 
   @Test
@@ -0,0 +1,66 @@
+package com.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.microsoft.model.MetadataFile;
+import com.microsoft.model.YmlFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackgroundFileWriterTest {
+
+  private final String ROOT_DIR = "target/background-writer";
+
+  @Before
+  public void setup() throws IOException {
+    FileUtilTest.deleteDirectory(ROOT_DIR);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtilTest.deleteDirectory(ROOT_DIR);
+  }
+
+  @Test
+  public void writesAllFilesBeforeClose() {
+    try (BackgroundFileWriter writer = new BackgroundFileWriter(2)) {
+      for (int i = 0; i < 500; i++) {
+        writer.write(new MetadataFile(ROOT_DIR, "file" + i + ".yml"));
+      }
+    }
+
+    for (int i = 0; i < 500; i++) {
+      assertTrue("File should be written", Files.exists(Path.of(ROOT_DIR, "file" + i + ".yml")));
+    }
+  }
+
+  @Test
+  public void rethrowsWriteFailureOnClose() {
+    BackgroundFileWriter writer = new BackgroundFileWriter(1);
+    writer.write(
+        new YmlFile() {
+          @Override
+          public String getFileContent() {
+            throw new IllegalStateException("Broken file");
+          }
+
+          @Override
+          public String getFileNameWithPath() {
+            return ROOT_DIR + "/broken.yml";
+          }
+        });
+
+    try {
+      writer.close();
+      fail();
+    } catch (IllegalStateException ex) {
+      assertEquals("Wrong exception", "Broken file", ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.microsoft.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.util.BuildMetrics.Phase;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildMetricsTest {
+
+  private final String ROOT_DIR = "target/build-metrics";
+
+  @Before
+  public void setup() throws IOException {
+    FileUtilTest.deleteDirectory(ROOT_DIR);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtilTest.deleteDirectory(ROOT_DIR);
+  }
+
+  @Test
+  public void writeJson() throws IOException {
+    BuildMetrics metrics = new BuildMetrics();
+    assertEquals("result", metrics.time(Phase.POPULATE_UID_VALUES, () -> "result"));
+    metrics.time(Phase.POPULATE_UID_VALUES, () -> {});
+    for (int i = 0; i < 15; i++) {
+      metrics.recordClass("Class" + i, i * 1_000_000L);
+    }
+    metrics.recordPackage("com.example", 5_000_000L);
+    CacheStats cacheStats = new CacheStats();
+    cacheStats.recordRequest();
+    cacheStats.recordRequest();
+    cacheStats.recordRequest();
+    cacheStats.recordMiss();
+    metrics.recordCache("lookup", cacheStats);
+    metrics.recordFile("Class1.yml", 3, 4, 5);
+    metrics.finish();
+    Path path = Path.of(ROOT_DIR, "report.json");
+
+    metrics.writeJson(path);
+
+    JsonObject report = JsonParser.parseString(Files.readString(path)).getAsJsonObject();
+    JsonObject phase = report.getAsJsonObject("phases").getAsJsonObject("populateUidValues");
+    assertEquals(2, phase.get("calls").getAsInt());
+    assertEquals(
+        0, report.getAsJsonObject("phases").getAsJsonObject("yamlDump").get("calls").getAsInt());
+
+    JsonArray slowestClasses = report.getAsJsonArray("slowestClasses");
+    assertEquals(10, slowestClasses.size());
+    assertEquals("Class14", slowestClasses.get(0).getAsJsonObject().get("name").getAsString());
+    assertEquals("Class5", slowestClasses.get(9).getAsJsonObject().get("name").getAsString());
+    assertEquals(1, report.getAsJsonArray("slowestPackages").size());
+
+    JsonObject cache = report.getAsJsonObject("caches").getAsJsonObject("lookup");
+    assertEquals(2, cache.get("hits").getAsLong());
+    assertEquals(1, cache.get("misses").getAsLong());
+
+    JsonObject file = report.getAsJsonObject("files").getAsJsonObject("Class1.yml");
+    assertEquals(3, file.get("items").getAsInt());
+    assertEquals(4, file.get("references").getAsInt());
+    assertEquals(5, file.get("xrefs").getAsInt());
+  }
+
+  @Test
+  public void getSummary() {
+    BuildMetrics metrics = new BuildMetrics();
+    metrics.recordFile("Class1.yml", 1, 1, 1);
+    metrics.recordFile("Class2.yml", 1, 1, 1);
+    metrics.finish();
+
+    assertThat(metrics.getSummary()).startsWith("Build metrics: ");
+    assertThat(metrics.getSummary()).contains(" ms total, 2 class files, organizePackages ");
+    assertThat(metrics.getSummary()).contains("yamlDump ");
+  }
+}
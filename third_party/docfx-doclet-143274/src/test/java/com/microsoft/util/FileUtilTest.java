@@ -3,6 +3,8 @@ package com.microsoft.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.microsoft.model.MetadataFile;
+import com.microsoft.model.MetadataFileItem;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -51,6 +53,21 @@ public class FileUtilTest {
     assertEquals("Invalid file content", Files.readString(Paths.get(FILE_NAME)), content);
   }
 
+  @Test
+  public void dumpYmlFileStreamsSameContent() throws IOException {
+    MetadataFile metadataFile = new MetadataFile(ROOT_DIR + "/dir2", "out.yml");
+    metadataFile.getItems().add(new MetadataFileItem("b.Uid"));
+    metadataFile.getItems().add(new MetadataFileItem("a.Uid"));
+    metadataFile.getReferences().add(new MetadataFileItem("c.Uid", "Uid", false));
+
+    FileUtil.dumpToFile(metadataFile);
+
+    assertEquals(
+        "Invalid file content",
+        metadataFile.getFileContent(),
+        Files.readString(Paths.get(metadataFile.getFileNameWithPath())));
+  }
+
   public static void deleteDirectory(String pathString) throws IOException {
     Path path = Paths.get(pathString);
     if (Files.exists(path)) {
@@ -0,0 +1,56 @@
+package com.microsoft.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LookupCacheTest {
+
+  @Test
+  public void getBuildsEachValueOnce() {
+    List<String> loadedKeys = new ArrayList<>();
+    LookupCache<String, StringBuilder> cache =
+        new LookupCache<>(
+            0,
+            key -> {
+              loadedKeys.add(key);
+              return new StringBuilder(key);
+            });
+
+    StringBuilder first = cache.get("a");
+    assertSame(first, cache.get("a"));
+    cache.get("b");
+    cache.get("a");
+
+    assertEquals(List.of("a", "b"), loadedKeys);
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.getStats().getHits());
+    assertEquals(2, cache.getStats().getMisses());
+  }
+
+  @Test
+  public void evictedValueIsBuiltAgain() {
+    List<String> loadedKeys = new ArrayList<>();
+    LookupCache<String, String> cache =
+        new LookupCache<>(
+            16,
+            key -> {
+              loadedKeys.add(key);
+              return key.toUpperCase();
+            });
+    cache.get("a");
+    cache.get("b");
+
+    cache.evict("a");
+    cache.evict("missing");
+
+    assertEquals(1, cache.size());
+    assertEquals("A", cache.get("a"));
+    assertEquals(List.of("a", "b", "a"), loadedKeys);
+    assertEquals(0, cache.getStats().getHits());
+    assertEquals(3, cache.getStats().getMisses());
+  }
+}
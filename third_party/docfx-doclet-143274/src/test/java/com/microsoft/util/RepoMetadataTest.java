@@ -1,8 +1,13 @@
 package com.microsoft.util;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
 
 import com.google.docfx.doclet.RepoMetadata;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import org.junit.Test;
 
 public class RepoMetadataTest {
@@ -39,4 +44,21 @@ public class RepoMetadataTest {
         "https://central.sonatype.com/artifact/com.google.cloud/google-cloud-translate",
         testRepoMetadata.getMavenLink());
   }
+
+  @Test
+  public void testParseRepoMetadataReadsRewrittenFile() throws IOException {
+    Path path = Path.of("target/repo-metadata-test/.repo-metadata.json");
+    Files.createDirectories(path.getParent());
+    Files.writeString(path, "{\"api_shortname\": \"first\"}");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000));
+
+    RepoMetadata first = new RepoMetadata().parseRepoMetadata(path.toString());
+    assertNotSame(first, new RepoMetadata().parseRepoMetadata(path.toString()));
+
+    // A rewrite within the modification time resolution must still be read
+    Files.writeString(path, "{\"api_shortname\": \"second\"}");
+    Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000));
+    assertEquals("second", new RepoMetadata().parseRepoMetadata(path.toString()).getApiShortName());
+    assertEquals("first", first.getApiShortName());
+  }
 }
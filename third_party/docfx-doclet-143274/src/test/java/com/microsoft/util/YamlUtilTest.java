@@ -208,4 +208,49 @@ public class YamlUtilTest {
         expectedResult + random + expectedResult,
         YamlUtil.cleanupHtml(expectedActual + random + expectedActual));
   }
+
+  @Test
+  public void cleanupHtmlCombinedReplacementsTest() {
+    String[] parts = {
+      "<pre>text</pre>",
+      "<pre><code>int a = 1;</code></pre>",
+      "<Foo>",
+      "`code`",
+      "[text](link)",
+      "{@link \"http://link.com\"}",
+      "[text][uid]",
+      "{@link Some#method()}",
+      "======================= Title =======================",
+      "plain text\n",
+      "<pre>`not code`</pre>",
+      "[`code`](link)",
+      "<a href=\"x\">[x][y]</a>"
+    };
+    StringBuilder text = new StringBuilder();
+    for (String first : parts) {
+      for (String second : parts) {
+        text.setLength(0);
+        text.append(first).append(' ').append(second);
+        assertEquals(
+            cleanupHtmlWithReplaceAll(text.toString()), YamlUtil.cleanupHtml(text.toString()));
+      }
+    }
+  }
+
+  /** Reference implementation the precompiled replacements must stay equivalent to */
+  private String cleanupHtmlWithReplaceAll(String text) {
+    return text.replaceAll("<pre>([^<]+)</pre>", "$1")
+        .replaceAll("<pre><code>", "<pre class=\"prettyprint lang-java\"><code>")
+        .replaceAll("<([A-Z][^<]+||)>", "&lt;$1&gt;")
+        .replaceAll("`([^`]+)`", "<code>$1</code>")
+        .replaceAll("\\[([^]]+)]\\(([^)]+)\\)", "<a href=\"$2\">$1</a>")
+        .replaceAll("\\{@link *\"([^\\{]+)\" *\\}", "<a href=\"$1\">$1</a>")
+        .replaceAll(
+            "\\[([^]]+)]\\[([^]]+)\\]",
+            "<xref uid=\"$2\" data-throw-if-not-resolved=\"false\">$1</xref>")
+        .replaceAll(
+            "\\{@link *([^\\{\"]+) *\\}",
+            "<xref uid=\"$1\" data-throw-if-not-resolved=\"false\">$1</xref>")
+        .replaceAll("=======================([^=]+)=======================", "<h3>$1</h3>");
+  }
 }